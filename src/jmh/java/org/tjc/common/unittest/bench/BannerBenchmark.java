@@ -0,0 +1,79 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.bench;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tjc.common.unittest.Banner;
+import org.tjc.common.unittest.Strings;
+
+/**
+ * Measures {@link Banner#generateBanner()} for different title widths and message counts.
+ *
+ * @author tjclancy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BannerBenchmark {
+
+    @Param({"8", "80", "1000"})
+    public int width;
+
+    @Param({"0", "10"})
+    public int messageCount;
+
+    private Banner banner;
+
+    @Setup
+    public void setUp() {
+        List<String> messages = new ArrayList<>();
+        for (int i = 0; i < messageCount; i++) {
+            messages.add(Strings.fill((char) ('a' + i), Math.max(1, width - i)));
+        }
+        banner = new Banner(Banner.DEFAULT_BORDER_CHAR, Banner.DEFAULT_TITLE_MESSAGE_SEPARATOR_CHAR,
+            Strings.fill('t', width), 1, messages);
+    }
+
+    @Benchmark
+    public String generateBanner() {
+        return banner.generateBanner();
+    }
+
+}
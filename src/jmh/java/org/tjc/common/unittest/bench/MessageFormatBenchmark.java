@@ -0,0 +1,80 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.bench;
+
+import java.text.MessageFormat;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tjc.common.unittest.MessageFormats;
+
+/**
+ * Compares {@link MessageFormat#format(String, Object...)}, which parses the pattern on every
+ * call, with the per-thread compiled pattern cache in {@link MessageFormats}.
+ *
+ * @author tjclancy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class MessageFormatBenchmark {
+    private static final String PATTERN = "time elapsed in {0}: {1}, iteration {2} of test {3}";
+
+    private String unit;
+    private String elapsed;
+    private String iteration;
+    private String test;
+
+    @Setup
+    public void setUp() {
+        unit = "nanoseconds";
+        elapsed = "123456789";
+        iteration = "42";
+        test = "testSomething()";
+    }
+
+    @Benchmark
+    public String messageFormat() {
+        return MessageFormat.format(PATTERN, unit, elapsed, iteration, test);
+    }
+
+    @Benchmark
+    public String cachedMessageFormat() {
+        return MessageFormats.format(PATTERN, unit, elapsed, iteration, test);
+    }
+
+}
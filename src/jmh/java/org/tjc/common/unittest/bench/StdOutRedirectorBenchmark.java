@@ -0,0 +1,89 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tjc.common.unittest.StdOutRedirector;
+import org.tjc.common.unittest.Strings;
+
+/**
+ * Measures the throughput of capturing System.out with {@link StdOutRedirector}: start a capture,
+ * print a batch of lines, stop the capture and read it back as a String. Scores are per captured
+ * line.
+ *
+ * @author tjclancy
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StdOutRedirectorBenchmark {
+    private static final int LINES_PER_CAPTURE = 100;
+
+    @Param({"16", "128", "1024"})
+    public int lineLength;
+
+    private StdOutRedirector redirector;
+    private String line;
+
+    @Setup
+    public void setUp() {
+        redirector = StdOutRedirector.getInstance();
+        line = Strings.fill('x', lineLength);
+    }
+
+    @TearDown
+    public void tearDown() {
+        redirector.stopCapture();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES_PER_CAPTURE)
+    public String captureAndRelease() {
+        redirector.startCapture();
+        for (int i = 0; i < LINES_PER_CAPTURE; i++) {
+            System.out.println(line);
+        }
+        redirector.stopCapture();
+        String captured = redirector.toString();
+        redirector.getByteArrayOut().reset();
+        return captured;
+    }
+
+}
@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tjc.common.unittest.Strings;
+import org.tjc.common.unittest.UnitTestSupport;
+
+/**
+ * Measures the fill and banner helpers at various widths.
+ *
+ * @author tjclancy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class StringsBenchmark {
+
+    @Param({"8", "80", "1000"})
+    public int width;
+
+    private String message;
+    private String[] messages;
+
+    @Setup
+    public void setUp() {
+        message = Strings.fill('m', width);
+        messages = new String[]{message, Strings.fill('n', width / 2), Strings.fill('o', width)};
+    }
+
+    @Benchmark
+    public String fillChar() {
+        return Strings.fill('*', width);
+    }
+
+    @Benchmark
+    public String unitTestSupportFillChar() {
+        return UnitTestSupport.fill('*', width);
+    }
+
+    @Benchmark
+    public String unitTestSupportFillString() {
+        return UnitTestSupport.fill("*", width);
+    }
+
+    @Benchmark
+    public String banner() {
+        return UnitTestSupport.banner(message);
+    }
+
+    @Benchmark
+    public String multiLineBanner() {
+        return UnitTestSupport.multiLineBanner(messages);
+    }
+
+    @Benchmark
+    public String underline() {
+        return UnitTestSupport.underline(message);
+    }
+
+}
@@ -0,0 +1,102 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.bench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.tjc.common.unittest.UnitTestSupport;
+
+/**
+ * Measures what the write methods of {@link UnitTestSupport} cost when output is disabled, which
+ * is how they run in CI.
+ *
+ * @author tjclancy
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class UnitTestSupportBenchmark {
+    private String name;
+    private int count;
+
+    @Setup
+    public void setUp() {
+        UnitTestSupport.setShowOutput(false);
+        name = "testSomething";
+        count = 42;
+    }
+
+    @Benchmark
+    public void writelnDisabled() {
+        UnitTestSupport.writeln("This line is never printed.");
+    }
+
+    @Benchmark
+    public void writelnObjectDisabled() {
+        UnitTestSupport.writeln((Object) name);
+    }
+
+    @Benchmark
+    public void writelnPatternDisabled() {
+        UnitTestSupport.writeln("name: {0}, count: {1}", name, count);
+    }
+
+    @Benchmark
+    public void writelnSupplierDisabled() {
+        UnitTestSupport.writeln(() -> "name: " + name + ", count: " + count);
+    }
+
+    @Benchmark
+    public void writefDisabled() {
+        UnitTestSupport.writef("name: %s, count: %d%n", name, count);
+    }
+
+    @Benchmark
+    public void writeBannerDisabled() {
+        UnitTestSupport.writeBanner(name);
+    }
+
+    @Benchmark
+    public void writeBannerPatternDisabled() {
+        UnitTestSupport.writeBanner("{0}: {1}", name, count);
+    }
+
+    @Benchmark
+    public String methodName() {
+        return UnitTestSupport.methodName();
+    }
+
+}
@@ -27,4 +27,8 @@ module org.tjc.common.unittest {
 
     exports org.tjc.common.unittest;
     exports org.tjc.common.unittest.perf;
+    exports org.tjc.common.unittest.memfs;
+
+    provides java.nio.file.spi.FileSystemProvider
+        with org.tjc.common.unittest.memfs.MemoryFileSystemProvider;
 }
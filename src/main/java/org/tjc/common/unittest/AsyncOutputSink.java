@@ -0,0 +1,275 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Writes text to a PrintStream from a background thread.
+ * <p>
+ * Callers push strings into a bounded ring buffer and return immediately. A daemon writer thread
+ * drains the buffer, joins everything that is waiting into one large write, and prints it to the
+ * target stream. Callers that share the sink therefore don't serialize on the stream's lock, and a
+ * slow terminal or log collector only slows down the writer thread.
+ * <p>
+ * When the buffer is full the {@link OverflowPolicy} decides whether the caller waits or the text
+ * is dropped. Everything accepted is written by {@link #flush()}, {@link #close()}, or a shutdown
+ * hook that closes the sink when the JVM exits.
+ *
+ * @author tjclancy
+ */
+public final class AsyncOutputSink implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final int MAX_RETAINED_BATCH_CHARS = 1 << 20;
+    private static final long POLL_TIMEOUT_MILLIS = 50L;
+
+    /**
+     * What to do with a write when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait for the writer thread to make room. Nothing is lost.
+         */
+        BLOCK,
+        /**
+         * Silently discard the write.
+         */
+        DROP,
+        /**
+         * Discard the write but count it. The count is available from
+         * {@link AsyncOutputSink#getDroppedCount()}, and a line reporting how many writes were
+         * dropped is written with the next batch.
+         */
+        COUNT_AND_DROP
+    }
+
+    private final PrintStream out;
+    private final BlockingQueue<String> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final Thread writer;
+    private final Thread shutdownHook;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong droppedSinceLastBatch = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final Object progressLock = new Object();
+    /*
+     * Writers hold the read lock from the closed check until their text is queued, and close()
+     * takes the write lock to set closed, so the writer thread can't finish draining while a
+     * write that saw the sink open is still on its way into the queue.
+     */
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+    private long written;
+    private volatile boolean closed;
+
+    public AsyncOutputSink(PrintStream out) {
+        this(out, DEFAULT_CAPACITY, OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Creates a sink and starts its writer thread.
+     *
+     * @param out            The stream that is written to.
+     * @param capacity       The number of writes that can be buffered.
+     * @param overflowPolicy What to do when the buffer is full.
+     */
+    public AsyncOutputSink(PrintStream out, int capacity, OverflowPolicy overflowPolicy) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.out = out;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.writer = new Thread(this::drain, "async-output-sink");
+        this.writer.setDaemon(true);
+        this.shutdownHook = new Thread(this::close, "async-output-sink-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        this.writer.start();
+    }
+
+    /**
+     * Queues text to be written. After the sink has been closed the text is written directly.
+     *
+     * @param s The text.
+     */
+    public void write(String s) {
+        String text = s == null ? "null" : s;
+        closeLock.readLock().lock();
+        try {
+            if (closed) {
+                out.print(text);
+                return;
+            }
+            enqueue(text);
+        } finally {
+            closeLock.readLock().unlock();
+        }
+    }
+
+    private void enqueue(String text) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                try {
+                    queue.put(text);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    out.print(text);
+                    return;
+                }
+                break;
+            case DROP:
+                if (!queue.offer(text)) {
+                    return;
+                }
+                break;
+            case COUNT_AND_DROP:
+                if (!queue.offer(text)) {
+                    dropped.incrementAndGet();
+                    droppedSinceLastBatch.incrementAndGet();
+                    return;
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown overflow policy: " + overflowPolicy);
+        }
+        accepted.incrementAndGet();
+    }
+
+    /**
+     * Waits until everything queued before this call has been written and flushed.
+     */
+    public void flush() {
+        long target = accepted.get();
+        synchronized (progressLock) {
+            while (written < target && writer.isAlive()) {
+                try {
+                    progressLock.wait(POLL_TIMEOUT_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes everything that has been queued and stops the writer thread. Writes made after the
+     * sink is closed go directly to the stream.
+     */
+    @Override
+    public void close() {
+        closeLock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down; the hook is running or about to run.
+            }
+        }
+        out.flush();
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public PrintStream getOut() {
+        return out;
+    }
+
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * @return The number of writes discarded by {@link OverflowPolicy#COUNT_AND_DROP}.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    private void drain() {
+        List<String> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        StringBuilder sb = new StringBuilder();
+        while (true) {
+            String first;
+            try {
+                first = queue.poll(POLL_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                first = null;
+            }
+            if (first == null) {
+                if (closed && queue.isEmpty()) {
+                    break;
+                }
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+
+            long droppedWrites = droppedSinceLastBatch.getAndSet(0L);
+            if (droppedWrites > 0) {
+                sb.append(String.format("[%d writes dropped, output buffer was full]%n",
+                    droppedWrites));
+            }
+            batch.forEach(sb::append);
+            out.print(sb);
+            out.flush();
+
+            synchronized (progressLock) {
+                written += batch.size();
+                progressLock.notifyAll();
+            }
+            batch.clear();
+            if (sb.capacity() > MAX_RETAINED_BATCH_CHARS) {
+                sb = new StringBuilder();
+            } else {
+                sb.setLength(0);
+            }
+        }
+    }
+}
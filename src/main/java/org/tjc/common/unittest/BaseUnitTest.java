@@ -27,7 +27,11 @@ import java.util.ArrayDeque;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.tjc.common.unittest.perf.BenchmarkResult;
+import org.tjc.common.unittest.perf.LatencyHistogram;
 import org.tjc.common.unittest.perf.StopWatch;
+import org.tjc.common.unittest.perf.StopWatchRegistry;
 
 import static org.tjc.common.unittest.UnitTestSupport.writeln;
 
@@ -49,13 +53,93 @@ public abstract class BaseUnitTest {
         stdOutRed = StdOutRedirector.getInstance();
     }
 
+    /**
+     * Starts capturing what this thread prints to System.out. Only the calling thread's output is
+     * captured, so tests running in parallel can capture at the same time.
+     */
     public void captureStdOut() {
-        stdOutRed.startCapture();
+        stdOutRed.startThreadCapture();
     }
 
+    /**
+     * Stops capturing and returns what was captured since {@link #captureStdOut()}.
+     *
+     * @return The captured output.
+     */
     public String releaseStdOut() {
+        return stdOutRed.stopThreadCapture();
+    }
+
+    /**
+     * Checks each line this thread prints to System.out against expectations as it is printed,
+     * without keeping the output. Stop with {@link #releaseStdOut()}, then call
+     * {@link OutputExpectations#verify()}.
+     *
+     * @param expectations The expectations to check.
+     */
+    public void matchStdOut(OutputExpectations expectations) {
+        stdOutRed.startMatchingThreadCapture(expectations);
+    }
+
+    /**
+     * Returns the lines captured so far since {@link #captureStdOut()}, decoded lazily from the
+     * capture buffer without copying it. Close the stream when done with it.
+     *
+     * @return The captured lines.
+     */
+    public Stream<String> capturedStdOutLines() {
+        return stdOutRed.capturedLines();
+    }
+
+    /**
+     * Discards everything printed to System.out, by any thread, and only counts it. Use it to keep
+     * chatty code quiet while benchmarking it; the counts are available from
+     * {@link #getStdOutByteCount()}, {@link #getStdOutLineCount()} and
+     * {@link #getStdOutWriteCount()} after {@link #releaseCountedStdOut()}.
+     */
+    public void countStdOut() {
+        stdOutRed.startCountingCapture();
+    }
+
+    /**
+     * Stops discarding System.out.
+     *
+     * @return The counts since {@link #countStdOut()}, or null if output wasn't being counted.
+     */
+    public CountingOutputStream releaseCountedStdOut() {
         stdOutRed.stopCapture();
-        return stdOutRed.toString();
+        return stdOutRed.getCountingOut();
+    }
+
+    public long getStdOutByteCount() {
+        CountingOutputStream counts = stdOutRed.getCountingOut();
+        return counts == null ? 0 : counts.getByteCount();
+    }
+
+    public long getStdOutLineCount() {
+        CountingOutputStream counts = stdOutRed.getCountingOut();
+        return counts == null ? 0 : counts.getLineCount();
+    }
+
+    public long getStdOutWriteCount() {
+        CountingOutputStream counts = stdOutRed.getCountingOut();
+        return counts == null ? 0 : counts.getWriteCount();
+    }
+
+    /**
+     * Buffers this thread's UnitTestSupport output until {@link #releaseBufferedOutput()} is
+     * called. Call it from a {@code @BeforeEach} method when tests run in parallel.
+     */
+    public void bufferOutput() {
+        UnitTestSupport.startBufferedOutput();
+    }
+
+    /**
+     * Writes the output buffered since {@link #bufferOutput()} as one block. Call it from an
+     * {@code @AfterEach} method.
+     */
+    public void releaseBufferedOutput() {
+        UnitTestSupport.flushBufferedOutput();
     }
 
     /**
@@ -119,6 +203,67 @@ public abstract class BaseUnitTest {
         writeln();
     }
 
+    /**
+     * showTimedResults. Prints a percentile summary of the histogram instead of every result,
+     * which keeps the output readable when millions of samples have been recorded.
+     *
+     * @param sw        a {@link org.tjc.common.unittest.perf.StopWatch} object.
+     * @param histogram a {@link org.tjc.common.unittest.perf.LatencyHistogram} object.
+     */
+    public void showTimedResults(StopWatch sw, LatencyHistogram histogram) {
+        showElapsedTimes(sw);
+        showPercentiles(histogram);
+    }
+
+    /**
+     * showPercentiles.
+     *
+     * @param histogram a {@link org.tjc.common.unittest.perf.LatencyHistogram} object.
+     */
+    public void showPercentiles(LatencyHistogram histogram) {
+        writeln("============");
+        writeln("Percentiles:");
+        writeln("============");
+        for (String line : histogram.summary(TimeUnit.MICROSECONDS).split("\\R")) {
+            writeln("  {0}", line);
+        }
+        writeln();
+    }
+
+    /**
+     * showTimers.
+     *
+     * @param registry a {@link org.tjc.common.unittest.perf.StopWatchRegistry} object.
+     */
+    public void showTimers(StopWatchRegistry registry) {
+        writeln("=======");
+        writeln("Timers:");
+        writeln("=======");
+        registry.getTimers().values().forEach(timer -> writeln("  {0}", timer));
+        writeln();
+    }
+
+    /**
+     * showBenchmarkResult.
+     *
+     * @param result a {@link org.tjc.common.unittest.perf.BenchmarkResult} object.
+     */
+    public void showBenchmarkResult(BenchmarkResult result) {
+        writeln("==========");
+        writeln("Benchmark:");
+        writeln("==========");
+        writeln("  {0}", result.getId());
+        writeln("  ns/op : {0} +/- {1}", String.format("%.3f", result.getNanosPerOp()),
+            String.format("%.3f", result.getNanosPerOpError()));
+        writeln("  ops/s : {0} +/- {1}", String.format("%.0f", result.getOpsPerSecond()),
+            String.format("%.0f", result.getOpsPerSecondError()));
+        writeln("  range : {0} .. {1} ns/op", String.format("%.3f", result.getMinNanosPerOp()),
+            String.format("%.3f", result.getMaxNanosPerOp()));
+        writeln("  runs  : {0} iterations of {1} ops", result.getIterations(),
+            Long.toString(result.getOperationsPerIteration()));
+        writeln();
+    }
+
     /**
      * showResults.
      *
@@ -0,0 +1,189 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.lang.StackWalker.Option;
+import java.lang.StackWalker.StackFrame;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The class, method and line of a frame on the calling thread's stack.
+ * <p>
+ * Frames are found with a {@link StackWalker}, which only materializes the few frames it is asked
+ * for instead of capturing the whole stack like {@link Thread#getStackTrace()}. The information
+ * is cached per call site (declaring class, method signature and bytecode index), so looking up
+ * the same call site again returns the same instance with its names already formatted.
+ *
+ * @author tjclancy
+ */
+public final class CallerInfo {
+    private static final StackWalker WALKER =
+        StackWalker.getInstance(Option.RETAIN_CLASS_REFERENCE);
+
+    private static final ClassValue<ConcurrentMap<Site, CallerInfo>> CACHE =
+        new ClassValue<ConcurrentMap<Site, CallerInfo>>() {
+        @Override
+        protected ConcurrentMap<Site, CallerInfo> computeValue(Class<?> type) {
+            return new ConcurrentHashMap<>();
+        }
+    };
+
+    private final Class<?> declaringClass;
+    private final String methodName;
+    private final String fileName;
+    private final int lineNumber;
+    private final String displayName;
+    private final String description;
+
+    private CallerInfo(StackFrame frame) {
+        this.declaringClass = frame.getDeclaringClass();
+        this.methodName = frame.getMethodName();
+        this.fileName = frame.getFileName();
+        this.lineNumber = frame.getLineNumber();
+        this.displayName = methodName + "()";
+        this.description = frame.toStackTraceElement().toString();
+    }
+
+    /**
+     * @return The method that called this method.
+     */
+    public static CallerInfo current() {
+        return find(2);
+    }
+
+    /**
+     * @return The caller of the method that called this method.
+     */
+    public static CallerInfo caller() {
+        return find(3);
+    }
+
+    /**
+     * Returns a frame of the calling thread's stack.
+     *
+     * @param depth The number of frames to go up from the method calling this method: 0 is that
+     *              method, 1 its caller and so on.
+     *
+     * @return The frame.
+     *
+     * @throws IllegalArgumentException If depth is negative or the stack isn't that deep.
+     */
+    public static CallerInfo at(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative: " + depth);
+        }
+        return find(depth + 2);
+    }
+
+    public Class<?> getDeclaringClass() {
+        return declaringClass;
+    }
+
+    public String getClassName() {
+        return declaringClass.getName();
+    }
+
+    public String getMethodName() {
+        return methodName;
+    }
+
+    /**
+     * @return The source file name, or null if it isn't available.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * @return The source line number, or a negative number if it isn't available.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return The method name followed by "()", as used in test banners.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return The frame formatted like a line of a stack trace.
+     */
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    /*
+     * Skips frames counted from this method, which is always the first frame of the walk.
+     */
+    private static CallerInfo find(int skip) {
+        Optional<StackFrame> frame = WALKER.walk(s -> s.skip(skip).findFirst());
+        if (frame.isEmpty()) {
+            throw new IllegalArgumentException(
+                "The stack isn't deep enough to skip " + skip + " frames.");
+        }
+        StackFrame f = frame.get();
+        return CACHE.get(f.getDeclaringClass()).computeIfAbsent(
+            new Site(f.getMethodName(), f.getDescriptor(), f.getByteCodeIndex()),
+            site -> new CallerInfo(f));
+    }
+
+    /*
+     * A call site within a class. The descriptor tells overloaded methods apart.
+     */
+    private static final class Site {
+        private final String methodName;
+        private final String descriptor;
+        private final int byteCodeIndex;
+
+        Site(String methodName, String descriptor, int byteCodeIndex) {
+            this.methodName = methodName;
+            this.descriptor = descriptor;
+            this.byteCodeIndex = byteCodeIndex;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Site)) {
+                return false;
+            }
+            Site other = (Site) obj;
+            return byteCodeIndex == other.byteCodeIndex && methodName.equals(other.methodName)
+                && descriptor.equals(other.descriptor);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * (31 * methodName.hashCode() + descriptor.hashCode()) + byteCodeIndex;
+        }
+    }
+}
@@ -23,28 +23,543 @@
  */
 package org.tjc.common.unittest;
 
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Reflection metadata of a class, cached per class in a {@link ClassValue} so that every
+ * ClassInfo of the same class shares one copy of the method, field, constructor and annotation
+ * lists.
+ * <p>
+ * The cached Method, Field and Constructor objects are only used internally. Whether a member is
+ * accessible is a property of each reflective object, so the getters and find methods return new
+ * objects, as Class does: a caller's {@code setAccessible(true)} never affects anyone else.
+ * <p>
+ * Methods, constructors and fields can also be used through cached method and var handles,
+ * including private members, which makes repeated invocations and field accesses about as fast as
+ * direct calls. Handles for non public members are created with
+ * {@link MethodHandles#privateLookupIn(Class, MethodHandles.Lookup)}, so the class's package must
+ * be open to this module; classes on the class path always are. Public members of exported
+ * packages can always be used.
+ *
+ * @author tjclancy
+ */
 public class ClassInfo {
+    private static final MethodType INVOKER_TYPE =
+        MethodType.methodType(Object.class, Object.class, Object[].class);
+    private static final String CONSTRUCTOR_NAME = "<init>";
+    /*
+     * The numeric primitives in widening order, and their wrappers.
+     */
+    private static final List<Class<?>> NUMERIC_PRIMITIVES = List.of(byte.class, short.class,
+        int.class, long.class, float.class, double.class);
+    private static final List<Class<?>> NUMERIC_WRAPPERS = List.of(Byte.class, Short.class,
+        Integer.class, Long.class, Float.class, Double.class);
+
+    private static final ClassValue<Metadata> METADATA = new ClassValue<Metadata>() {
+        @Override
+        protected Metadata computeValue(Class<?> type) {
+            return new Metadata();
+        }
+    };
 
     Object o;
     Class<?> clazz;
+    private final Metadata metadata;
 
     public ClassInfo(Object o) {
         this.o = o;
         this.clazz = o.getClass();
+        this.metadata = METADATA.get(clazz);
     }
 
     public ClassInfo(Class<?> clazz) {
         this.clazz = clazz;
+        this.metadata = METADATA.get(clazz);
+    }
+
+    public Class<?> getType() {
+        return clazz;
     }
 
+    /**
+     * @return The public methods of the class, including inherited ones, as an unmodifiable list
+     *         of new Method objects; see the class comment.
+     */
     public List<Method> getMethods() {
-        return Stream.of(clazz.getMethods()).collect(Collectors.toList());
+        return List.of(clazz.getMethods());
+    }
+
+    /**
+     * @return The methods declared by the class itself, as an unmodifiable list of new Method
+     *         objects.
+     */
+    public List<Method> getDeclaredMethods() {
+        return List.of(clazz.getDeclaredMethods());
+    }
 
+    /**
+     * @return The fields declared by the class itself, as an unmodifiable list of new Field
+     *         objects.
+     */
+    public List<Field> getDeclaredFields() {
+        return List.of(clazz.getDeclaredFields());
     }
 
+    /**
+     * @return The constructors declared by the class, as an unmodifiable list of new Constructor
+     *         objects.
+     */
+    public List<Constructor<?>> getConstructors() {
+        return List.of(clazz.getDeclaredConstructors());
+    }
+
+    /**
+     * @return The annotations of the class, including inherited ones. The list is shared and
+     *         unmodifiable.
+     */
+    public List<Annotation> getAnnotations() {
+        List<Annotation> annotations = metadata.annotations;
+        if (annotations == null) {
+            annotations = metadata.annotations = List.of(clazz.getAnnotations());
+        }
+        return annotations;
+    }
+
+    /**
+     * @param <A>            The annotation type.
+     * @param annotationType The annotation type.
+     *
+     * @return The annotation of the class, or null if it isn't present.
+     */
+    public <A extends Annotation> A getAnnotation(Class<A> annotationType) {
+        for (Annotation annotation : getAnnotations()) {
+            if (annotation.annotationType() == annotationType) {
+                return annotationType.cast(annotation);
+            }
+        }
+        return null;
+    }
+
+    public boolean isAnnotationPresent(Class<? extends Annotation> annotationType) {
+        return getAnnotation(annotationType) != null;
+    }
+
+    /**
+     * Finds a method of any visibility, declared by the class or one of its superclasses, or a
+     * public method inherited from an interface.
+     *
+     * @param name           The method name.
+     * @param parameterTypes The parameter types.
+     *
+     * @return A new Method object for the method.
+     *
+     * @throws NoSuchMethodException If there is no such method.
+     */
+    public Method findMethod(String name, Class<?>... parameterTypes)
+        throws NoSuchMethodException {
+        Method method = findCachedMethod(name, parameterTypes);
+        return method.getDeclaringClass().getDeclaredMethod(name, parameterTypes);
+    }
+
+    /**
+     * Finds a field of any visibility, declared by the class or one of its superclasses.
+     *
+     * @param name The field name.
+     *
+     * @return A new Field object for the field.
+     *
+     * @throws NoSuchFieldException If there is no such field.
+     */
+    public Field findField(String name) throws NoSuchFieldException {
+        return findCachedField(name).getDeclaringClass().getDeclaredField(name);
+    }
+
+    private Method findCachedMethod(String name, Class<?>[] parameterTypes)
+        throws NoSuchMethodException {
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            for (Method method : METADATA.get(type).declaredMethods(type)) {
+                if (method.getName().equals(name)
+                    && Arrays.equals(method.getParameterTypes(), parameterTypes)) {
+                    return method;
+                }
+            }
+        }
+        return clazz.getMethod(name, parameterTypes);
+    }
+
+    private Field findCachedField(String name) throws NoSuchFieldException {
+        for (Class<?> type = clazz; type != null; type = type.getSuperclass()) {
+            for (Field field : METADATA.get(type).declaredFields(type)) {
+                if (field.getName().equals(name)) {
+                    return field;
+                }
+            }
+        }
+        throw new NoSuchFieldException(clazz.getName() + "." + name);
+    }
+
+    /**
+     * Returns a cached handle for a method of any visibility, see
+     * {@link #findMethod(String, Class...)}.
+     *
+     * @param name           The method name.
+     * @param parameterTypes The parameter types.
+     *
+     * @return The method handle. An instance method's handle takes the receiver first.
+     *
+     * @throws NoSuchMethodException If there is no such method.
+     * @throws IllegalAccessException If the method isn't accessible to this module.
+     */
+    public MethodHandle getMethodHandle(String name, Class<?>... parameterTypes)
+        throws NoSuchMethodException, IllegalAccessException {
+        return methodAccess(name, parameterTypes).handle;
+    }
+
+    /**
+     * Invokes a method of any visibility through a cached method handle.
+     *
+     * @param target         The receiver, ignored for static methods.
+     * @param name           The method name.
+     * @param parameterTypes The parameter types.
+     * @param args           The arguments.
+     *
+     * @return The result, or null for a void method.
+     *
+     * @throws ReflectiveOperationException An InvocationTargetException wrapping anything the
+     *                                      method throws, or the exceptions of
+     *                                      {@link #getMethodHandle(String, Class...)}.
+     * @throws IllegalArgumentException     If an argument or the target doesn't have the
+     *                                      expected type, as with {@link Method#invoke}.
+     * @throws NullPointerException         If the method is an instance method and target is
+     *                                      null.
+     */
+    public Object invoke(Object target, String name, Class<?>[] parameterTypes, Object... args)
+        throws ReflectiveOperationException {
+        checkArguments(parameterTypes, args);
+        MethodAccess access = methodAccess(name, parameterTypes);
+        if (access.receiverType != null) {
+            Objects.requireNonNull(target, "target");
+            if (!access.receiverType.isInstance(target)) {
+                throw new IllegalArgumentException(String.format(
+                    "The target is a %s, not a %s.", target.getClass().getName(),
+                    access.receiverType.getName()));
+            }
+        }
+        return invoke(access.invoker, target, args);
+    }
+
+    /**
+     * Creates an instance with a constructor of any visibility through a cached method handle.
+     *
+     * @param parameterTypes The parameter types.
+     * @param args           The arguments.
+     *
+     * @return The new instance.
+     *
+     * @throws ReflectiveOperationException An InvocationTargetException wrapping anything the
+     *                                      constructor throws, a NoSuchMethodException if there is
+     *                                      no such constructor, or an IllegalAccessException if it
+     *                                      isn't accessible to this module.
+     * @throws IllegalArgumentException     If an argument doesn't have the expected type.
+     */
+    public Object newInstance(Class<?>[] parameterTypes, Object... args)
+        throws ReflectiveOperationException {
+        checkArguments(parameterTypes, args);
+        return invoke(methodAccess(CONSTRUCTOR_NAME, parameterTypes).invoker, null, args);
+    }
+
+    /**
+     * Returns a cached handle for a field of any visibility, see {@link #findField(String)}. The
+     * handle of a final field can only read it.
+     *
+     * @param name The field name.
+     *
+     * @return The var handle. An instance field's handle takes the receiver as coordinate.
+     *
+     * @throws NoSuchFieldException  If there is no such field.
+     * @throws IllegalAccessException If the field isn't accessible to this module.
+     */
+    public VarHandle getVarHandle(String name) throws NoSuchFieldException,
+        IllegalAccessException {
+        return fieldAccess(name).handle;
+    }
+
+    /**
+     * Reads a field of any visibility through a cached var handle.
+     *
+     * @param target The object holding the field, ignored for static fields.
+     * @param name   The field name.
+     *
+     * @return The field value, boxed for primitive fields.
+     *
+     * @throws ReflectiveOperationException See {@link #getVarHandle(String)}.
+     */
+    public Object getFieldValue(Object target, String name) throws ReflectiveOperationException {
+        FieldAccess access = fieldAccess(name);
+        return access.isStatic ? access.handle.get() : access.handle.get(target);
+    }
+
+    /**
+     * Writes a field of any visibility through a cached var handle.
+     *
+     * @param target The object holding the field, ignored for static fields.
+     * @param name   The field name.
+     * @param value  The new value, boxed for primitive fields.
+     *
+     * @throws ReflectiveOperationException  See {@link #getVarHandle(String)}.
+     * @throws UnsupportedOperationException If the field is final.
+     */
+    public void setFieldValue(Object target, String name, Object value)
+        throws ReflectiveOperationException {
+        FieldAccess access = fieldAccess(name);
+        if (access.isStatic) {
+            access.handle.set(value);
+        } else {
+            access.handle.set(target, value);
+        }
+    }
+
+    private MethodAccess methodAccess(String name, Class<?>[] parameterTypes)
+        throws NoSuchMethodException, IllegalAccessException {
+        MemberKey key = new MemberKey(name, parameterTypes);
+        MethodAccess access = metadata.methodHandles.get(key);
+        if (access == null) {
+            MethodHandle handle;
+            MethodHandle invoker;
+            Class<?> receiverType = null;
+            if (CONSTRUCTOR_NAME.equals(name)) {
+                Constructor<?> constructor = findConstructor(parameterTypes);
+                handle = lookup(constructor).unreflectConstructor(constructor);
+                invoker = MethodHandles.dropArguments(handle, 0, Object.class);
+            } else {
+                Method method = findCachedMethod(name, parameterTypes);
+                handle = lookup(method).unreflect(method);
+                if (Modifier.isStatic(method.getModifiers())) {
+                    invoker = MethodHandles.dropArguments(handle, 0, Object.class);
+                } else {
+                    invoker = handle;
+                    receiverType = method.getDeclaringClass();
+                }
+            }
+            invoker = invoker.asFixedArity()
+                .asSpreader(Object[].class, parameterTypes.length)
+                .asType(INVOKER_TYPE);
+            access = new MethodAccess(handle, invoker, receiverType);
+            MethodAccess previous = metadata.methodHandles.putIfAbsent(
+                new MemberKey(name, parameterTypes.clone()), access);
+            if (previous != null) {
+                access = previous;
+            }
+        }
+        return access;
+    }
+
+    private FieldAccess fieldAccess(String name) throws NoSuchFieldException,
+        IllegalAccessException {
+        FieldAccess access = metadata.varHandles.get(name);
+        if (access == null) {
+            Field field = findCachedField(name);
+            access = new FieldAccess(lookup(field).unreflectVarHandle(field),
+                Modifier.isStatic(field.getModifiers()));
+            FieldAccess previous = metadata.varHandles.putIfAbsent(name, access);
+            if (previous != null) {
+                access = previous;
+            }
+        }
+        return access;
+    }
+
+    private Constructor<?> findConstructor(Class<?>[] parameterTypes)
+        throws NoSuchMethodException {
+        for (Constructor<?> constructor : metadata.constructors(clazz)) {
+            if (Arrays.equals(constructor.getParameterTypes(), parameterTypes)) {
+                return constructor;
+            }
+        }
+        throw new NoSuchMethodException(clazz.getName() + ".<init>"
+            + Arrays.toString(parameterTypes));
+    }
+
+    /*
+     * A lookup with private access to the member's class if its package is open to this module,
+     * otherwise this module's own lookup, which can still use public members of exported
+     * packages.
+     */
+    private static MethodHandles.Lookup lookup(Member member) throws IllegalAccessException {
+        Metadata declaring = METADATA.get(member.getDeclaringClass());
+        MethodHandles.Lookup lookup = declaring.lookup;
+        if (lookup == null) {
+            Class<?> type = member.getDeclaringClass();
+            ClassInfo.class.getModule().addReads(type.getModule());
+            try {
+                lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+            } catch (IllegalAccessException e) {
+                lookup = MethodHandles.lookup();
+            }
+            declaring.lookup = lookup;
+        }
+        return lookup;
+    }
+
+    private static Object invoke(MethodHandle invoker, Object target, Object[] args)
+        throws InvocationTargetException {
+        try {
+            return (Object) invoker.invokeExact(target, args);
+        } catch (Throwable t) {
+            throw new InvocationTargetException(t);
+        }
+    }
+
+    /*
+     * Checks the arguments the way Method.invoke does, so that only what the target throws is
+     * wrapped in an InvocationTargetException.
+     */
+    private static void checkArguments(Class<?>[] parameterTypes, Object[] args) {
+        if (parameterTypes.length != args.length) {
+            throw new IllegalArgumentException(String.format(
+                "Expected %d arguments but got %d.", parameterTypes.length, args.length));
+        }
+        for (int i = 0; i < args.length; i++) {
+            if (!isAssignable(parameterTypes[i], args[i])) {
+                throw new IllegalArgumentException(String.format(
+                    "Argument %d is %s, which can't be passed as a %s.", i,
+                    args[i] == null ? "null" : "a " + args[i].getClass().getName(),
+                    parameterTypes[i].getName()));
+            }
+        }
+    }
+
+    /*
+     * A reference parameter takes null or an instance; a primitive parameter takes its wrapper,
+     * or the wrapper of a type that widens to it.
+     */
+    private static boolean isAssignable(Class<?> type, Object arg) {
+        if (!type.isPrimitive()) {
+            return arg == null || type.isInstance(arg);
+        }
+        if (arg == null) {
+            return false;
+        }
+        Class<?> wrapper = arg.getClass();
+        if (type == boolean.class || wrapper == Boolean.class) {
+            return type == boolean.class && wrapper == Boolean.class;
+        }
+        int to = NUMERIC_PRIMITIVES.indexOf(type);
+        if (wrapper == Character.class) {
+            return type == char.class || to >= NUMERIC_PRIMITIVES.indexOf(int.class);
+        }
+        int from = NUMERIC_WRAPPERS.indexOf(wrapper);
+        return from >= 0 && from <= to;
+    }
+
+    /*
+     * The cached metadata of one class. The lists are created lazily; two threads may both create
+     * one, which is harmless since they are equal and immutable. The reflective objects in them
+     * are never handed out, because their accessible flag is shared by everyone holding them.
+     */
+    private static final class Metadata {
+        private final ConcurrentMap<MemberKey, MethodAccess> methodHandles =
+            new ConcurrentHashMap<>();
+        private final ConcurrentMap<String, FieldAccess> varHandles = new ConcurrentHashMap<>();
+        private volatile List<Method> declaredMethods;
+        private volatile List<Field> declaredFields;
+        private volatile List<Constructor<?>> constructors;
+        private volatile List<Annotation> annotations;
+        private volatile MethodHandles.Lookup lookup;
+
+        private List<Method> declaredMethods(Class<?> type) {
+            List<Method> methods = declaredMethods;
+            if (methods == null) {
+                methods = declaredMethods = List.of(type.getDeclaredMethods());
+            }
+            return methods;
+        }
+
+        private List<Field> declaredFields(Class<?> type) {
+            List<Field> fields = declaredFields;
+            if (fields == null) {
+                fields = declaredFields = List.of(type.getDeclaredFields());
+            }
+            return fields;
+        }
+
+        private List<Constructor<?>> constructors(Class<?> type) {
+            List<Constructor<?>> list = constructors;
+            if (list == null) {
+                list = constructors = List.of(type.getDeclaredConstructors());
+            }
+            return list;
+        }
+    }
+
+    private static final class MethodAccess {
+        private final MethodHandle handle;
+        /*
+         * The handle adapted to (Object target, Object[] args)Object.
+         */
+        private final MethodHandle invoker;
+        /*
+         * The class the target must be an instance of, or null for static methods and
+         * constructors.
+         */
+        private final Class<?> receiverType;
+
+        MethodAccess(MethodHandle handle, MethodHandle invoker, Class<?> receiverType) {
+            this.handle = handle;
+            this.invoker = invoker;
+            this.receiverType = receiverType;
+        }
+    }
+
+    private static final class FieldAccess {
+        private final VarHandle handle;
+        private final boolean isStatic;
+
+        FieldAccess(VarHandle handle, boolean isStatic) {
+            this.handle = handle;
+            this.isStatic = isStatic;
+        }
+    }
+
+    private static final class MemberKey {
+        private final String name;
+        private final Class<?>[] parameterTypes;
+
+        MemberKey(String name, Class<?>[] parameterTypes) {
+            this.name = name;
+            this.parameterTypes = parameterTypes;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) obj;
+            return name.equals(other.name) && Arrays.equals(parameterTypes, other.parameterTypes);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * name.hashCode() + Arrays.hashCode(parameterTypes);
+        }
+    }
 }
@@ -0,0 +1,92 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.OutputStream;
+
+/**
+ * An output stream that throws away everything written to it and only counts bytes, lines and
+ * write calls. It doesn't allocate or synchronize, so it adds almost nothing to the cost of the
+ * code that writes to it. The counters are plain fields: read them from the writing thread, or
+ * after the writers are done.
+ *
+ * @author tjclancy
+ */
+public class CountingOutputStream extends OutputStream {
+    private long byteCount;
+    private long lineCount;
+    private long writeCount;
+
+    public CountingOutputStream() {
+    }
+
+    @Override
+    public void write(int b) {
+        writeCount++;
+        byteCount++;
+        if (b == '\n') {
+            lineCount++;
+        }
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        writeCount++;
+        byteCount += len;
+        for (int i = off, end = off + len; i < end; i++) {
+            if (b[i] == '\n') {
+                lineCount++;
+            }
+        }
+    }
+
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return The number of '\n' bytes written.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return The number of calls to a write method.
+     */
+    public long getWriteCount() {
+        return writeCount;
+    }
+
+    public void reset() {
+        byteCount = 0;
+        lineCount = 0;
+        writeCount = 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("bytes: %d, lines: %d, writes: %d", byteCount, lineCount, writeCount);
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A record of the regular files in a directory tree: for each file its path relative to the
+ * root, size, modification time and a SHA-256 hash of its content. Files are found in parallel
+ * by a {@link FileTreeWalker} and then hashed in parallel, one task per file.
+ * <p>
+ * {@link #refresh()} takes a new snapshot of the same tree, reusing the hash of every file whose
+ * size and modification time are unchanged, and {@link #diff(DirectorySnapshot)} lists the files
+ * added, removed and changed between two snapshots, which need not be of the same tree.
+ *
+ * <pre>
+ *    DirectorySnapshot expected = DirectorySnapshot.take(goldenDir);
+ *    DirectorySnapshot before = DirectorySnapshot.take(outputDir);
+ *    runJob(outputDir);
+ *    DirectorySnapshot.Diff changes = before.diff(before.refresh());
+ *    assertTrue(expected.diff(DirectorySnapshot.take(outputDir)).isEmpty());
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public final class DirectorySnapshot {
+    private static final String HASH_ALGORITHM = "SHA-256";
+    private static final int HASH_REGION_SIZE = 16 * 1024 * 1024;
+
+    private final Path root;
+    private final Map<String, Entry> entries;
+    private final long hashedFiles;
+
+    private DirectorySnapshot(Path root, Map<String, Entry> entries, long hashedFiles) {
+        this.root = root;
+        this.entries = Collections.unmodifiableMap(entries);
+        this.hashedFiles = hashedFiles;
+    }
+
+    /**
+     * Takes a snapshot of the files under root, hashing every file.
+     *
+     * @param root The root directory.
+     *
+     * @return The snapshot.
+     *
+     * @throws IOException If a directory or file can't be read.
+     */
+    public static DirectorySnapshot take(Path root) throws IOException {
+        return take(root, Collections.emptyMap());
+    }
+
+    /**
+     * Takes a new snapshot of this snapshot's root. Files whose size and modification time are
+     * the same as in this snapshot keep their hash and are not read.
+     *
+     * @return The new snapshot.
+     *
+     * @throws IOException If a directory or file can't be read.
+     */
+    public DirectorySnapshot refresh() throws IOException {
+        return take(root, entries);
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * @return The entries, keyed and sorted by their '/' separated path relative to the root.
+     */
+    public Map<String, Entry> getEntries() {
+        return entries;
+    }
+
+    public Entry getEntry(String relativePath) {
+        return entries.get(relativePath);
+    }
+
+    public int getFileCount() {
+        return entries.size();
+    }
+
+    public long getTotalBytes() {
+        return entries.values().stream().mapToLong(Entry::getSize).sum();
+    }
+
+    /**
+     * @return The number of files that were read and hashed to take this snapshot; the rest
+     *         reused a hash from the previous snapshot.
+     */
+    public long getHashedFileCount() {
+        return hashedFiles;
+    }
+
+    /**
+     * Compares this snapshot with a newer one.
+     *
+     * @param newer The snapshot to compare with.
+     *
+     * @return The files only in newer, only in this snapshot, and in both with different
+     *         content.
+     */
+    public Diff diff(DirectorySnapshot newer) {
+        List<String> added = new ArrayList<>();
+        List<String> removed = new ArrayList<>();
+        List<String> changed = new ArrayList<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            Entry other = newer.entries.get(entry.getKey());
+            if (other == null) {
+                removed.add(entry.getKey());
+            } else if (!entry.getValue().sameContent(other)) {
+                changed.add(entry.getKey());
+            }
+        }
+        for (String path : newer.entries.keySet()) {
+            if (!entries.containsKey(path)) {
+                added.add(path);
+            }
+        }
+        return new Diff(added, removed, changed);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d files, %d bytes, %d hashed", root, getFileCount(),
+            getTotalBytes(), hashedFiles);
+    }
+
+    private static DirectorySnapshot take(Path root, Map<String, Entry> previous)
+        throws IOException {
+        Map<String, Entry> entries = new ConcurrentHashMap<>();
+        Queue<Runnable> toHash = new ConcurrentLinkedQueue<>();
+        FileTreeWalker.create(root).forEach((file, attrs) -> {
+            String relative = relativePath(root, file);
+            Entry old = previous.get(relative);
+            if (old != null && old.size == attrs.size()
+                && old.lastModifiedTime.equals(attrs.lastModifiedTime())) {
+                entries.put(relative, old);
+            } else {
+                toHash.add(() -> entries.put(relative, new Entry(relative, attrs, hash(file))));
+            }
+        });
+        /*
+         * The walker visits the files of one directory one after another, so the files are
+         * hashed afterwards, each as its own task, to hash a flat directory in parallel as well.
+         */
+        try {
+            toHash.parallelStream().forEach(Runnable::run);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new DirectorySnapshot(root, new TreeMap<>(entries), toHash.size());
+    }
+
+    private static String relativePath(Path root, Path file) {
+        Path relative = root.relativize(file);
+        StringBuilder path = new StringBuilder();
+        for (Path name : relative) {
+            if (path.length() > 0) {
+                path.append('/');
+            }
+            path.append(name);
+        }
+        return path.toString();
+    }
+
+    private static String hash(Path file) {
+        try {
+            return hashContent(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String hashContent(Path file) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance(HASH_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += HASH_REGION_SIZE) {
+                ByteBuffer region = MappedText.map(channel, position,
+                    (int) Math.min(HASH_REGION_SIZE, size - position));
+                digest.update(region);
+            }
+        }
+        StringBuilder hex = new StringBuilder();
+        for (byte b : digest.digest()) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    /**
+     * One file in a snapshot.
+     */
+    public static final class Entry {
+        private final String path;
+        private final long size;
+        private final FileTime lastModifiedTime;
+        private final String hash;
+
+        private Entry(String path, BasicFileAttributes attrs, String hash) {
+            this.path = path;
+            this.size = attrs.size();
+            this.lastModifiedTime = attrs.lastModifiedTime();
+            this.hash = hash;
+        }
+
+        /**
+         * @return The '/' separated path relative to the snapshot's root.
+         */
+        public String getPath() {
+            return path;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        public FileTime getLastModifiedTime() {
+            return lastModifiedTime;
+        }
+
+        /**
+         * @return The hex encoded SHA-256 hash of the content.
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        boolean sameContent(Entry other) {
+            return size == other.size && Objects.equals(hash, other.hash);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s (%d bytes, %s, %s)", path, size, lastModifiedTime, hash);
+        }
+    }
+
+    /**
+     * The differences between two snapshots.
+     */
+    public static final class Diff {
+        private final List<String> added;
+        private final List<String> removed;
+        private final List<String> changed;
+
+        private Diff(List<String> added, List<String> removed, List<String> changed) {
+            this.added = Collections.unmodifiableList(added);
+            this.removed = Collections.unmodifiableList(removed);
+            this.changed = Collections.unmodifiableList(changed);
+        }
+
+        public List<String> getAdded() {
+            return added;
+        }
+
+        public List<String> getRemoved() {
+            return removed;
+        }
+
+        public List<String> getChanged() {
+            return changed;
+        }
+
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            if (isEmpty()) {
+                return "no differences";
+            }
+            StringBuilder diff = new StringBuilder();
+            added.forEach(path -> diff.append(String.format("+ %s%n", path)));
+            removed.forEach(path -> diff.append(String.format("- %s%n", path)));
+            changed.forEach(path -> diff.append(String.format("M %s%n", path)));
+            return diff.toString();
+        }
+    }
+}
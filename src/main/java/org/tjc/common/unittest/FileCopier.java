@@ -0,0 +1,157 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copies files and directory trees with {@link FileChannel#transferTo}, which lets the operating
+ * system move the bytes without passing them through the Java heap. Directory trees are copied
+ * in parallel, one file per task, using a {@link FileTreeWalker}.
+ *
+ * @author tjclancy
+ */
+public final class FileCopier {
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+
+    private FileCopier() {
+    }
+
+    /**
+     * Copies src to dst, replacing dst if it exists.
+     *
+     * @param src The source file.
+     * @param dst The destination file.
+     *
+     * @return The number of bytes copied.
+     *
+     * @throws IOException If either file can't be opened or the copy fails.
+     */
+    public static long copy(Path src, Path dst) throws IOException {
+        try(FileChannel in = FileChannel.open(src, StandardOpenOption.READ);
+            FileChannel out = FileChannel.open(dst, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long size = in.size();
+            long position = 0;
+            while (position < size) {
+                long n = in.transferTo(position, size - position, out);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+            }
+            return position;
+        }
+    }
+
+    /**
+     * Copies the regular files under src to the same relative paths under dst, in parallel.
+     * Directories are created as needed; empty directories are not copied. Existing files are
+     * replaced.
+     *
+     * @param src The source directory.
+     * @param dst The destination directory.
+     *
+     * @return The number of files and bytes copied and the time it took.
+     *
+     * @throws IOException If a directory can't be read or a file can't be copied.
+     */
+    public static CopyResult copyDirectory(Path src, Path dst) throws IOException {
+        return copyDirectory(src, dst, PathFilter.all());
+    }
+
+    /**
+     * Copies the regular files under src that pass filter to the same relative paths under dst,
+     * in parallel.
+     *
+     * @param src    The source directory.
+     * @param dst    The destination directory.
+     * @param filter The filter files must pass to be copied.
+     *
+     * @return The number of files and bytes copied and the time it took.
+     *
+     * @throws IOException If a directory can't be read or a file can't be copied.
+     */
+    public static CopyResult copyDirectory(Path src, Path dst, PathFilter filter)
+        throws IOException {
+        LongAdder files = new LongAdder();
+        LongAdder bytes = new LongAdder();
+        long start = System.nanoTime();
+        Files.createDirectories(dst);
+        FileTreeWalker.create(src).filter(filter).forEach((file, attrs) -> {
+            Path target = dst.resolve(src.relativize(file).toString());
+            Files.createDirectories(target.getParent());
+            bytes.add(copy(file, target));
+            files.increment();
+        });
+        return new CopyResult(files.sum(), bytes.sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * The outcome of {@link #copyDirectory}.
+     */
+    public static final class CopyResult {
+        private final long files;
+        private final long bytes;
+        private final long elapsedNanos;
+
+        public CopyResult(long files, long bytes, long elapsedNanos) {
+            this.files = files;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public long getFiles() {
+            return files;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return The throughput in megabytes (2^20 bytes) per second.
+         */
+        public double getMegabytesPerSecond() {
+            return elapsedNanos == 0 ? 0.0
+                : bytes / BYTES_PER_MEGABYTE / (elapsedNanos / NANOS_PER_SECOND);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("files: %d, bytes: %d, elapsed: %.3f ms, %.1f MB/s", files, bytes,
+                elapsedNanos / 1_000_000.0, getMegabytesPerSecond());
+        }
+    }
+}
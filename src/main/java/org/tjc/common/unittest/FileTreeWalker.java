@@ -0,0 +1,378 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Walks a file tree in parallel, listing each directory in its own ForkJoin task on a pool
+ * dedicated to the walk, so idle threads steal subdirectories from busy ones. Only regular files
+ * are reported, and links are not followed.
+ * <p>
+ * The {@link PathFilter}s first test each entry's name, and the entry's attributes are read, once,
+ * only if the file filter or the directory filter may still accept it. A directory filter prunes
+ * whole subtrees before they are listed. Results are either passed
+ * to a {@link Visitor}, or handed out lazily by {@link #stream()} through a bounded queue, so a
+ * walk over millions of files never holds more than the queue capacity in memory. Files are
+ * reported in no particular order.
+ *
+ * <pre>
+ *    try(Stream&lt;Path&gt; files = FileTreeWalker.create(root)
+ *        .filter(PathFilter.extension("json"))
+ *        .stream()) {
+ *        files.forEach(this::check);
+ *    }
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public final class FileTreeWalker {
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    private static final Object END = new Object();
+    private static final long OFFER_TIMEOUT_MILLIS = 10;
+
+    private final Path start;
+    private PathFilter fileFilter = PathFilter.all();
+    private PathFilter directoryFilter = PathFilter.all();
+    private int maxDepth = Integer.MAX_VALUE;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+
+    private FileTreeWalker(Path start) {
+        this.start = start;
+    }
+
+    public static FileTreeWalker create(Path start) {
+        return new FileTreeWalker(start);
+    }
+
+    /**
+     * Receives the files found by a walk. Called concurrently from the walk's threads.
+     */
+    @FunctionalInterface
+    public interface Visitor {
+
+        void visit(Path file, BasicFileAttributes attrs) throws IOException;
+    }
+
+    /**
+     * @param filter The filter files must pass to be reported.
+     *
+     * @return this
+     */
+    public FileTreeWalker filter(PathFilter filter) {
+        this.fileFilter = filter;
+        return this;
+    }
+
+    /**
+     * @param filter The filter subdirectories must pass to be walked. The start directory is
+     *               always walked.
+     *
+     * @return this
+     */
+    public FileTreeWalker directoryFilter(PathFilter filter) {
+        this.directoryFilter = filter;
+        return this;
+    }
+
+    /**
+     * @param maxDepth The maximum number of directory levels to visit. 1 reports only the files
+     *                 directly in the start directory.
+     *
+     * @return this
+     */
+    public FileTreeWalker maxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    public FileTreeWalker parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param queueCapacity The number of files {@link #stream()} buffers ahead of its consumer.
+     *
+     * @return this
+     */
+    public FileTreeWalker queueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * Walks the tree, passing each accepted file to visitor, and returns when the walk is done.
+     * The first exception thrown by the walk or the visitor stops the walk and is rethrown.
+     *
+     * @param visitor The visitor, called concurrently.
+     *
+     * @throws IOException If a directory can't be read or the visitor throws.
+     */
+    public void forEach(Visitor visitor) throws IOException {
+        Walk walk = new Walk(visitor);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            walk.run(pool);
+        } finally {
+            pool.shutdown();
+        }
+        walk.rethrow();
+    }
+
+    /**
+     * Starts the walk in the background and returns the accepted files as they are found. The
+     * walk pauses while the queue is full. Closing the stream cancels the walk, so use it in a
+     * try-with-resources statement when it may not be consumed to the end. A failure of the walk
+     * is thrown, as an UncheckedIOException if it was an IOException, when the stream reaches it.
+     *
+     * @return The files.
+     */
+    public Stream<Path> stream() {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicReference<Walk> walkRef = new AtomicReference<>();
+        Walk walk = new Walk((file, attrs) -> walkRef.get().put(queue, file));
+        walkRef.set(walk);
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        pool.execute(() -> {
+            try {
+                walk.run(pool);
+            } finally {
+                walk.put(queue, END);
+                pool.shutdown();
+            }
+        });
+        Iterator<Path> files = new Iterator<Path>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        walk.close();
+                        pool.shutdownNow();
+                        next = END;
+                    }
+                    if (next == END) {
+                        walk.rethrowUnchecked();
+                    }
+                }
+                return next != END;
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Path file = (Path) next;
+                next = null;
+                return file;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(files,
+            Spliterator.NONNULL | Spliterator.DISTINCT), false)
+            .onClose(() -> {
+                walk.close();
+                pool.shutdownNow();
+            });
+    }
+
+    /*
+     * The state of one walk: the visitor, the first failure and two flags. cancelled stops the
+     * directory tasks; closed, set when the consumer of a stream goes away, also stops waiting
+     * for room in the queue.
+     */
+    private final class Walk {
+        private final Visitor visitor;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private volatile boolean cancelled;
+        private volatile boolean closed;
+
+        private Walk(Visitor visitor) {
+            this.visitor = visitor;
+        }
+
+        private void run(ForkJoinPool pool) {
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(start, BasicFileAttributes.class,
+                    LinkOption.NOFOLLOW_LINKS);
+                if (attrs.isDirectory()) {
+                    DirectoryTask root = new DirectoryTask(this, start, 0);
+                    if (ForkJoinTask.getPool() == pool) {
+                        root.invoke();
+                    } else {
+                        pool.invoke(root);
+                    }
+                } else if (attrs.isRegularFile() && fileFilter.accept(start, attrs)) {
+                    visitor.visit(start, attrs);
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        private void visit(Path file, BasicFileAttributes attrs) {
+            try {
+                visitor.visit(file, attrs);
+            } catch (IOException | RuntimeException | Error e) {
+                fail(e);
+            }
+        }
+
+        private void put(BlockingQueue<Object> queue, Object item) {
+            try {
+                while (!closed) {
+                    if (queue.offer(item, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                close();
+            }
+        }
+
+        private void fail(Throwable e) {
+            failure.compareAndSet(null, e);
+            cancel();
+        }
+
+        private void cancel() {
+            cancelled = true;
+        }
+
+        private void close() {
+            closed = true;
+            cancelled = true;
+        }
+
+        private void rethrow() throws IOException {
+            Throwable e = failure.get();
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            rethrowUnchecked();
+        }
+
+        private void rethrowUnchecked() {
+            Throwable e = failure.get();
+            if (e instanceof IOException) {
+                throw new UncheckedIOException((IOException) e);
+            } else if (e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            } else if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    /*
+     * Lists one directory, reporting its files and forking a task for each subdirectory.
+     */
+    private final class DirectoryTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Walk walk;
+        private final transient Path directory;
+        private final int depth;
+
+        private DirectoryTask(Walk walk, Path directory, int depth) {
+            this.walk = walk;
+            this.directory = directory;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (walk.cancelled || depth >= maxDepth) {
+                return;
+            }
+            List<DirectoryTask> subdirectories = new ArrayList<>();
+            boolean descend = depth + 1 < maxDepth;
+            try(DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+                for (Path entry : entries) {
+                    if (walk.cancelled) {
+                        break;
+                    }
+                    boolean file = fileFilter.acceptName(entry);
+                    boolean subdirectory = descend && directoryFilter.acceptName(entry);
+                    if (!file && !subdirectory) {
+                        continue;
+                    }
+                    BasicFileAttributes attrs = Files.readAttributes(entry,
+                        BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        if (subdirectory && directoryFilter.accept(entry, attrs)) {
+                            DirectoryTask task = new DirectoryTask(walk, entry, depth + 1);
+                            task.fork();
+                            subdirectories.add(task);
+                        }
+                    } else if (file && attrs.isRegularFile() && fileFilter.accept(entry, attrs)) {
+                        walk.visit(entry, attrs);
+                    }
+                }
+            } catch (IOException | RuntimeException e) {
+                walk.fail(e);
+            }
+            for (DirectoryTask task : subdirectories) {
+                task.join();
+            }
+        }
+    }
+}
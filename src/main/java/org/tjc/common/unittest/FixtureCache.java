@@ -0,0 +1,281 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A process-wide cache of decoded fixture files, used by {@link UnitTestSupport#fileToString},
+ * {@link UnitTestSupport.Strings#fromFile} and {@link UnitTestSupport#readLines} when it is
+ * enabled. It is off by default; turn it on with the system property
+ * {@value #ENABLED_SYS_PROPERTY}=true or {@link #setEnabled(boolean)}.
+ * <p>
+ * Entries are keyed by absolute path and checked against the file's size and modification time
+ * on every lookup, so a changed file is read again. The cache is bounded by the total size of the
+ * cached files (default {@value #DEFAULT_MAX_BYTES} bytes, or the system property
+ * {@value #MAX_BYTES_SYS_PROPERTY}) and evicts the least recently used entries first. Cached
+ * results are shared, so lists are returned unmodifiable.
+ *
+ * @author tjclancy
+ */
+public final class FixtureCache {
+    public static final String ENABLED_SYS_PROPERTY = "unit.test.support.fixture.cache";
+    public static final String MAX_BYTES_SYS_PROPERTY = "unit.test.support.fixture.cache.max.bytes";
+    public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private volatile boolean enabled = Boolean.getBoolean(ENABLED_SYS_PROPERTY);
+    private long maxBytes = Long.getLong(MAX_BYTES_SYS_PROPERTY, DEFAULT_MAX_BYTES);
+    private long cachedBytes;
+
+    /**
+     * Creates a cache that is independent of the shared instance. Most callers want
+     * {@link #getInstance()}.
+     */
+    public FixtureCache() {
+    }
+
+    public static FixtureCache getInstance() {
+        return SingletonInstance.INSTANCE;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Turns the cache on or off. Turning it off also empties it.
+     *
+     * @param enabled True to cache fixture reads.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        if (!enabled) {
+            clear();
+        }
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Sets the maximum total size of the cached files, evicting entries if needed.
+     *
+     * @param maxBytes The maximum number of bytes.
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("maxBytes must not be negative: " + maxBytes);
+        }
+        this.maxBytes = maxBytes;
+        evict();
+    }
+
+    /**
+     * Returns the contents of a file decoded with charset, from the cache if the file hasn't
+     * changed.
+     *
+     * @param path    The file.
+     * @param charset The charset.
+     *
+     * @return The contents of the file.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    public String getString(Path path, Charset charset) throws IOException {
+        return (String) get(path, charset, false);
+    }
+
+    /**
+     * Returns the lines of a file decoded with charset, from the cache if the file hasn't
+     * changed.
+     *
+     * @param path    The file.
+     * @param charset The charset.
+     *
+     * @return An unmodifiable list of the lines.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> getLines(Path path, Charset charset) throws IOException {
+        return (List<String>) get(path, charset, true);
+    }
+
+    public List<String> getLines(Path path) throws IOException {
+        return getLines(path, StandardCharsets.UTF_8);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return The fraction of lookups served from the cache, or 0 if there were none.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Removes all entries. The statistics are kept; see {@link #resetStatistics()}.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        cachedBytes = 0;
+    }
+
+    public void resetStatistics() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits: %d, misses: %d, hit rate: %.1f%%, evictions: %d, entries: %d, "
+            + "bytes: %d", getHitCount(), getMissCount(), getHitRate() * 100.0,
+            getEvictionCount(), size(), getCachedBytes());
+    }
+
+    private Object get(Path path, Charset charset, boolean lines) throws IOException {
+        Key key = new Key(path.toAbsolutePath().normalize(), charset, lines);
+        BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+        FileTime modified = attrs.lastModifiedTime();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.size == attrs.size() && entry.modified.equals(modified)) {
+                hits.increment();
+                return entry.value;
+            }
+        }
+        misses.increment();
+        Object value = lines
+            ? Collections.unmodifiableList(Files.readAllLines(path, charset))
+            : MappedText.read(path, charset);
+        synchronized (this) {
+            Entry previous = entries.remove(key);
+            if (previous != null) {
+                cachedBytes -= previous.size;
+            }
+            if (attrs.size() <= maxBytes) {
+                entries.put(key, new Entry(attrs.size(), modified, value));
+                cachedBytes += attrs.size();
+                evict();
+            }
+        }
+        return value;
+    }
+
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (cachedBytes > maxBytes && iterator.hasNext()) {
+            cachedBytes -= iterator.next().size;
+            iterator.remove();
+            evictions.increment();
+        }
+    }
+
+    private static final class Key {
+        private final Path path;
+        private final Charset charset;
+        private final boolean lines;
+
+        private Key(Path path, Charset charset, boolean lines) {
+            this.path = path;
+            this.charset = charset;
+            this.lines = lines;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return lines == other.lines && path.equals(other.path)
+                && charset.equals(other.charset);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, charset, lines);
+        }
+    }
+
+    private static final class Entry {
+        private final long size;
+        private final FileTime modified;
+        private final Object value;
+
+        private Entry(long size, FileTime modified, Object value) {
+            this.size = size;
+            this.modified = modified;
+            this.value = value;
+        }
+    }
+
+    private static final class SingletonInstance {
+
+        static FixtureCache INSTANCE = new FixtureCache();
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.OptionalLong;
+import java.util.stream.LongStream;
+
+/**
+ * Compares generated files with golden files without reading either into a String. Both files
+ * are memory mapped and compared with {@link ByteBuffer#mismatch(ByteBuffer)}; large files are
+ * split into chunks that are compared in parallel, stopping at the first chunk that differs.
+ * A failed assertion reports the offset, line and column of the first difference with a little
+ * context from both files.
+ *
+ * <pre>
+ *    GoldenFiles.assertSameContent(Paths.get("src/test/resources/report.golden"), report);
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public final class GoldenFiles {
+    public static final int DEFAULT_CHUNK_SIZE = 8 * 1024 * 1024;
+
+    private static final int CONTEXT_BYTES = 32;
+    private static final int LINE_SCAN_BYTES = 4096;
+
+    private GoldenFiles() {
+    }
+
+    /**
+     * Asserts that actual has exactly the same bytes as golden.
+     *
+     * @param golden The expected file.
+     * @param actual The file to check.
+     *
+     * @throws AssertionError If the files differ.
+     * @throws IOException    If either file can't be read.
+     */
+    public static void assertSameContent(Path golden, Path actual) throws IOException {
+        assertSameContent(golden, actual, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Asserts that actual has exactly the same bytes as golden, comparing chunks of chunkSize
+     * bytes in parallel.
+     *
+     * @param golden    The expected file.
+     * @param actual    The file to check.
+     * @param chunkSize The number of bytes compared by one task.
+     *
+     * @throws AssertionError If the files differ.
+     * @throws IOException    If either file can't be read.
+     */
+    public static void assertSameContent(Path golden, Path actual, int chunkSize)
+        throws IOException {
+        try(FileChannel expected = FileChannel.open(golden, StandardOpenOption.READ);
+            FileChannel found = FileChannel.open(actual, StandardOpenOption.READ)) {
+            long offset = mismatch(expected, found, chunkSize);
+            if (offset >= 0) {
+                throw new AssertionError(describe(golden, expected, actual, found, offset));
+            }
+        }
+    }
+
+    /**
+     * Finds the first byte at which two files differ.
+     *
+     * @param first  A file.
+     * @param second Another file.
+     *
+     * @return The offset of the first difference, the size of the smaller file if it is a prefix
+     *         of the other, or -1 if the files are the same.
+     *
+     * @throws IOException If either file can't be read.
+     */
+    public static long mismatch(Path first, Path second) throws IOException {
+        try(FileChannel a = FileChannel.open(first, StandardOpenOption.READ);
+            FileChannel b = FileChannel.open(second, StandardOpenOption.READ)) {
+            return mismatch(a, b, DEFAULT_CHUNK_SIZE);
+        }
+    }
+
+    private static long mismatch(FileChannel a, FileChannel b, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        long sizeA = a.size();
+        long sizeB = b.size();
+        long common = Math.min(sizeA, sizeB);
+        long chunks = (common + chunkSize - 1) / chunkSize;
+        try {
+            LongStream indexes = LongStream.range(0, chunks);
+            OptionalLong first = (chunks > 1 ? indexes.parallel() : indexes)
+                .map(chunk -> mismatchInChunk(a, b, chunk * chunkSize,
+                    (int) Math.min(chunkSize, common - chunk * chunkSize)))
+                .filter(offset -> offset >= 0)
+                .findFirst();
+            if (first.isPresent()) {
+                return first.getAsLong();
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return sizeA == sizeB ? -1 : common;
+    }
+
+    private static long mismatchInChunk(FileChannel a, FileChannel b, long position, int length) {
+        try {
+            int offset = MappedText.map(a, position, length)
+                .mismatch(MappedText.map(b, position, length));
+            return offset < 0 ? -1 : position + offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String describe(Path golden, FileChannel expected, Path actual,
+        FileChannel found, long offset) throws IOException {
+        long lineStart = lineStart(expected, offset);
+        long line = LineCounter.countLineTerminators(expected, 0, lineStart) + 1;
+        long contextStart = Math.max(lineStart, offset - CONTEXT_BYTES);
+        String expectedBefore = context(expected, contextStart, offset);
+        return String.format("Files differ at byte %d (line %d, column %d)%n"
+            + "  golden: %s (%d bytes)%n"
+            + "  actual: %s (%d bytes)%n"
+            + "  expected: %s%s%n"
+            + "  actual  : %s%s%n"
+            + "            %" + (expectedBefore.length() + 1) + "s",
+            offset, line, offset - lineStart + 1,
+            golden, expected.size(), actual, found.size(),
+            expectedBefore, context(expected, offset, offset + CONTEXT_BYTES),
+            context(found, contextStart, offset), context(found, offset, offset + CONTEXT_BYTES),
+            "^");
+    }
+
+    /*
+     * Returns the offset just after the last line terminator before offset, or 0 if there is
+     * none, scanning backwards a few KB at a time.
+     */
+    private static long lineStart(FileChannel channel, long offset) throws IOException {
+        long to = offset;
+        while (to > 0) {
+            long from = Math.max(0, to - LINE_SCAN_BYTES);
+            ByteBuffer before = MappedText.map(channel, from, (int) (to - from));
+            for (int i = before.limit() - 1; i >= 0; i--) {
+                byte b = before.get(i);
+                if (b == '\n' || b == '\r') {
+                    return from + i + 1;
+                }
+            }
+            to = from;
+        }
+        return 0;
+    }
+
+    /*
+     * Returns bytes [from, to) of the file, clipped to its size, with line terminators and
+     * other control characters escaped so that the context stays on one line. An empty range is
+     * an empty string, even at the end of the file; any other range that starts at or after the
+     * end of the file is "<EOF>".
+     */
+    private static String context(FileChannel channel, long from, long to) throws IOException {
+        if (from >= to) {
+            return "";
+        }
+        if (from >= channel.size()) {
+            return "<EOF>";
+        }
+        long end = Math.min(to, channel.size());
+        ByteBuffer bytes = MappedText.map(channel, from, (int) (end - from));
+        StringBuilder context = new StringBuilder();
+        for (int i = 0; i < bytes.limit(); i++) {
+            int b = bytes.get(i) & 0xff;
+            if (b == '\n') {
+                context.append("\\n");
+            } else if (b == '\r') {
+                context.append("\\r");
+            } else if (b == '\t') {
+                context.append("\\t");
+            } else if (b < 0x20 || b >= 0x7f) {
+                context.append(String.format("\\x%02x", b));
+            } else {
+                context.append((char) b);
+            }
+        }
+        return context.toString();
+    }
+}
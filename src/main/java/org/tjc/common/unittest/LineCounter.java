@@ -0,0 +1,196 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts lines in a file without decoding it. The file is memory mapped and scanned for line
+ * terminators; files larger than one chunk are split into chunks that are counted in parallel on
+ * the common ForkJoin pool.
+ * <p>
+ * Lines are counted the way {@link java.io.BufferedReader#readLine()} splits them: "\n", "\r" and
+ * "\r\n" each end a line, and a last line without a terminator is still a line. Terminators are
+ * found by byte value, so the count is exact for UTF-8, ISO-8859-1 and other ASCII compatible
+ * encodings. Files on a file system that can't map them are read in chunks instead.
+ *
+ * @author tjclancy
+ */
+public final class LineCounter {
+    /**
+     * The default number of bytes counted by one task.
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private LineCounter() {
+    }
+
+    /**
+     * Counts the lines in file.
+     *
+     * @param file The file.
+     *
+     * @return The number of lines.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    public static long countLines(Path file) throws IOException {
+        return countLines(file, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Counts the lines in file, splitting it into chunks of chunkSize bytes.
+     *
+     * @param file      The file.
+     * @param chunkSize The number of bytes counted by one task.
+     *
+     * @return The number of lines.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    public static long countLines(Path file, int chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return 0;
+            }
+            long terminators = size <= chunkSize
+                ? countLineTerminators(channel, 0, size)
+                : new ChunkTask(channel, 0, size, chunkSize).invoke();
+            ByteBuffer last = MappedText.map(channel, size - 1, 1);
+            return isTerminator(last.get(0)) ? terminators : terminators + 1;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Counts the line terminators that end in the byte range [from, to) of a file. A "\r\n" pair
+     * counts once, at the position of the "\r", so ranges can be counted separately and added up.
+     * The number of the line containing the byte at offset is countLineTerminators(channel, 0,
+     * offset) + 1.
+     *
+     * @param channel The file.
+     * @param from    The start offset, inclusive.
+     * @param to      The end offset, exclusive.
+     *
+     * @return The number of line terminators.
+     *
+     * @throws IOException If the file can't be read.
+     */
+    public static long countLineTerminators(FileChannel channel, long from, long to)
+        throws IOException {
+        long count = 0;
+        for (long start = from; start < to; start += DEFAULT_CHUNK_SIZE) {
+            long end = Math.min(to, start + DEFAULT_CHUNK_SIZE);
+            long mapStart = start > 0 ? start - 1 : 0;
+            ByteBuffer buffer = MappedText.map(channel, mapStart, (int) (end - mapStart));
+            count += countLineTerminators(buffer, (int) (start - mapStart), buffer.limit());
+        }
+        return count;
+    }
+
+    /**
+     * Counts the line terminators in buffer between from (inclusive) and to (exclusive), using
+     * the byte before from, if there is one, to tell whether a leading "\n" belongs to a "\r\n".
+     * The buffer's position and limit are not changed.
+     *
+     * @param buffer The buffer.
+     * @param from   The start index, inclusive.
+     * @param to     The end index, exclusive.
+     *
+     * @return The number of line terminators.
+     */
+    public static long countLineTerminators(ByteBuffer buffer, int from, int to) {
+        ByteBuffer view = buffer.duplicate();
+        byte[] bytes = new byte[SCAN_BUFFER_SIZE];
+        byte previous = from > 0 ? view.get(from - 1) : 0;
+        long count = 0;
+        view.position(from);
+        for (int index = from; index < to; index += SCAN_BUFFER_SIZE) {
+            int length = Math.min(SCAN_BUFFER_SIZE, to - index);
+            view.get(bytes, 0, length);
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '\r' || (b == '\n' && previous != '\r')) {
+                    count++;
+                }
+                previous = b;
+            }
+        }
+        return count;
+    }
+
+    private static boolean isTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+    /*
+     * Counts the terminators in [from, to), splitting the range in half until it is no larger
+     * than one chunk.
+     */
+    private static final class ChunkTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long from;
+        private final long to;
+        private final int chunkSize;
+
+        private ChunkTask(FileChannel channel, long from, long to, int chunkSize) {
+            this.channel = channel;
+            this.from = from;
+            this.to = to;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from <= chunkSize) {
+                try {
+                    return countLineTerminators(channel, from, to);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            long chunks = (to - from + chunkSize - 1) / chunkSize;
+            long middle = from + (chunks / 2) * chunkSize;
+            ChunkTask right = new ChunkTask(channel, middle, to, chunkSize);
+            right.fork();
+            long left = new ChunkTask(channel, from, middle, chunkSize).compute();
+            return left + right.join();
+        }
+    }
+}
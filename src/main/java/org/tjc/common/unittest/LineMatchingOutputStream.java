@@ -0,0 +1,125 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * An output stream that splits what is written into lines and hands each line to an
+ * {@link OutputExpectations} as soon as it is complete. Only the current, unfinished line is kept
+ * in memory. Written bytes can optionally be passed on to another stream as well.
+ *
+ * @author tjclancy
+ */
+public class LineMatchingOutputStream extends OutputStream {
+    private static final int INITIAL_LINE_CAPACITY = 256;
+
+    private final OutputExpectations expectations;
+    private final Charset charset;
+    private final OutputStream tee;
+    private byte[] line = new byte[INITIAL_LINE_CAPACITY];
+    private int lineLength;
+
+    public LineMatchingOutputStream(OutputExpectations expectations) {
+        this(expectations, Charset.defaultCharset(), null);
+    }
+
+    /**
+     * Creates a stream that checks lines against expectations.
+     *
+     * @param expectations The expectations to check.
+     * @param charset      The charset used to decode lines.
+     * @param tee          A stream that also receives everything written, or null.
+     */
+    public LineMatchingOutputStream(OutputExpectations expectations, Charset charset,
+        OutputStream tee) {
+        this.expectations = expectations;
+        this.charset = charset;
+        this.tee = tee;
+    }
+
+    public OutputExpectations getExpectations() {
+        return expectations;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        if (tee != null) {
+            tee.write(b);
+        }
+        append((byte) b);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (tee != null) {
+            tee.write(b, off, len);
+        }
+        for (int i = off; i < off + len; i++) {
+            append(b[i]);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (tee != null) {
+            tee.flush();
+        }
+    }
+
+    /**
+     * Checks the last line if it wasn't terminated.
+     *
+     * @throws IOException If the tee stream can't be closed.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (lineLength > 0) {
+            completeLine();
+        }
+        if (tee != null) {
+            tee.close();
+        }
+    }
+
+    private void append(byte b) {
+        if (b == '\n') {
+            completeLine();
+            return;
+        }
+        if (lineLength == line.length) {
+            line = Arrays.copyOf(line, line.length * 2);
+        }
+        line[lineLength++] = b;
+    }
+
+    private void completeLine() {
+        int length = lineLength > 0 && line[lineLength - 1] == '\r' ? lineLength - 1 : lineLength;
+        lineLength = 0;
+        expectations.accept(new String(line, 0, length, charset));
+    }
+}
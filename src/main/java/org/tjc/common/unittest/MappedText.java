@@ -0,0 +1,202 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads text files with an explicit charset. {@link #read(Path, Charset)} copies the file onto the
+ * heap once and lets String decode it into its own array. {@link #view(Path, Charset)} reads
+ * through a memory mapping: content that is ISO-8859-1, or ASCII in an ASCII compatible charset
+ * such as UTF-8, is returned as a CharSequence over the mapped bytes without running a decoder,
+ * so large files need not be copied into a String at all.
+ * <p>
+ * Malformed input is replaced, as {@link String#String(byte[], Charset)} does. Files on a file
+ * system that can't map them are read onto the heap instead.
+ *
+ * @author tjclancy
+ */
+public final class MappedText {
+    private static final long NON_ASCII_MASK = 0x8080808080808080L;
+
+    private MappedText() {
+    }
+
+    /**
+     * Reads a file into a String.
+     *
+     * @param path    The file.
+     * @param charset The file's charset.
+     *
+     * @return The contents of the file.
+     *
+     * @throws IOException If the file can't be read or is too large for a String.
+     */
+    public static String read(Path path, Charset charset) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(checkSize(path, channel.size()));
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                // The file may be read in several pieces.
+            }
+            return new String(buffer.array(), 0, buffer.position(), charset);
+        }
+    }
+
+    /**
+     * Returns the contents of a file as a CharSequence. When every byte is one character (see
+     * the class comment) the result is a view over the mapped file and nothing is copied;
+     * otherwise the file is decoded into a CharBuffer.
+     *
+     * @param path    The file.
+     * @param charset The file's charset.
+     *
+     * @return The contents of the file.
+     *
+     * @throws IOException If the file can't be read or is too large for a CharSequence.
+     */
+    public static CharSequence view(Path path, Charset charset) throws IOException {
+        ByteBuffer buffer = map(path);
+        if (isSingleByte(buffer, charset)) {
+            return new ByteCharSequence(buffer);
+        }
+        return decode(buffer, charset);
+    }
+
+    /**
+     * @param buffer The bytes to check, from position to limit. The position is not changed.
+     *
+     * @return True if every byte is below 0x80.
+     */
+    public static boolean isAscii(ByteBuffer buffer) {
+        ByteBuffer bytes = buffer.duplicate().order(ByteOrder.nativeOrder());
+        while (bytes.remaining() >= Long.BYTES) {
+            if ((bytes.getLong() & NON_ASCII_MASK) != 0) {
+                return false;
+            }
+        }
+        while (bytes.hasRemaining()) {
+            if (bytes.get() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static ByteBuffer map(Path path) throws IOException {
+        try(FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return map(channel, 0, checkSize(path, channel.size()));
+        }
+    }
+
+    private static int checkSize(Path path, long size) throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(String.format("%s is too large to read as text: %d bytes",
+                path, size));
+        }
+        return (int) size;
+    }
+
+    /*
+     * Maps a region of a file, or reads it onto the heap when the channel can't be mapped, as
+     * with in-memory and zip file systems.
+     */
+    static ByteBuffer map(FileChannel channel, long position, int size) throws IOException {
+        try {
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (UnsupportedOperationException e) {
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    break;
+                }
+            }
+            return buffer.flip();
+        }
+    }
+
+    private static boolean isSingleByte(ByteBuffer buffer, Charset charset) {
+        if (charset.equals(StandardCharsets.ISO_8859_1)) {
+            return true;
+        }
+        return (charset.equals(StandardCharsets.US_ASCII) || charset.equals(StandardCharsets.UTF_8)
+            || charset.name().startsWith("ISO-8859") || charset.name().startsWith("windows-125"))
+            && isAscii(buffer);
+    }
+
+    private static CharSequence decode(ByteBuffer buffer, Charset charset)
+        throws CharacterCodingException {
+        return charset.newDecoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE)
+            .decode(buffer);
+    }
+
+    /*
+     * One char per byte over a buffer; exact for ISO-8859-1 and for ASCII content.
+     */
+    private static final class ByteCharSequence implements CharSequence {
+        private final ByteBuffer buffer;
+
+        private ByteCharSequence(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length() || from > to) {
+                throw new IndexOutOfBoundsException(
+                    String.format("from: %d, to: %d, length: %d", from, to, length()));
+            }
+            ByteBuffer slice = buffer.duplicate();
+            slice.position(from).limit(to);
+            return new ByteCharSequence(slice.slice());
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[buffer.limit()];
+            buffer.duplicate().position(0).get(bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
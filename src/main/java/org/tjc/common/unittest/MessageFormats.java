@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.text.MessageFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Formats {@link MessageFormat} patterns without re-parsing a pattern every time it is used.
+ * <p>
+ * MessageFormat isn't thread safe, so every thread keeps its own small LRU cache of compiled
+ * formats instead of sharing one behind a lock. Each cache holds at most
+ * {@link #MAX_CACHED_PATTERNS} patterns; the least recently used pattern is dropped when the
+ * cache is full.
+ *
+ * @author tjclancy
+ */
+public final class MessageFormats {
+
+    /**
+     * The maximum number of compiled patterns cached per thread.
+     */
+    public static final int MAX_CACHED_PATTERNS = 256;
+
+    private static final ThreadLocal<Map<String, MessageFormat>> CACHE = ThreadLocal.withInitial(
+        MessageFormats::newCache);
+
+    private MessageFormats() {
+    }
+
+    /**
+     * Same as {@link MessageFormat#format(String, Object...)}, but the pattern is only compiled
+     * the first time the calling thread uses it.
+     *
+     * @param pattern The MessageFormat pattern.
+     * @param args    The arguments referenced by the pattern.
+     *
+     * @return The formatted string.
+     */
+    public static String format(String pattern, Object... args) {
+        return compiled(pattern).format(args);
+    }
+
+    /**
+     * @return The number of patterns cached by the calling thread.
+     */
+    public static int cachedPatternCount() {
+        return CACHE.get().size();
+    }
+
+    /**
+     * Clears the calling thread's cache, e.g. after the default locale was changed.
+     */
+    public static void clear() {
+        CACHE.get().clear();
+    }
+
+    static MessageFormat compiled(String pattern) {
+        Map<String, MessageFormat> cache = CACHE.get();
+        MessageFormat format = cache.get(pattern);
+        if (format == null) {
+            format = new MessageFormat(pattern);
+            cache.put(pattern, format);
+        }
+        return format;
+    }
+
+    private static Map<String, MessageFormat> newCache() {
+        return new LinkedHashMap<>(32, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, MessageFormat> eldest) {
+                return size() > MAX_CACHED_PATTERNS;
+            }
+        };
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * A set of expectations about lines of output, checked one line at a time.
+ * <p>
+ * Lines are fed to {@link #accept(String)} as they are produced, e.g. by a
+ * {@link LineMatchingOutputStream} installed with {@link StdOutRedirector#startMatchingCapture},
+ * or per thread with {@link BaseUnitTest#matchStdOut(OutputExpectations)}.
+ * An expectation that can already be seen to fail, such as a forbidden line or an out of order
+ * line, throws an AssertionError from the write that produced the line, so a long running test
+ * fails as soon as its output goes wrong. The rest are checked by {@link #verify()} once the
+ * output is complete. Only the current line is ever held in memory.
+ *
+ * <pre>
+ *    OutputExpectations expectations = OutputExpectations.create()
+ *        .contains("started")
+ *        .matches("took \\d+ ms")
+ *        .inOrder("step 1", "step 2", "step 3")
+ *        .doesNotContain("Exception");
+ *    redirector.startMatchingCapture(expectations);
+ *    runJob();
+ *    redirector.stopCapture();
+ *    expectations.verify();
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public class OutputExpectations {
+    private final List<Expectation> expectations = new ArrayList<>();
+    private long lineCount;
+    private AssertionError failure;
+
+    public OutputExpectations() {
+    }
+
+    public static OutputExpectations create() {
+        return new OutputExpectations();
+    }
+
+    /**
+     * Expects at least one line that contains text.
+     *
+     * @param text The text.
+     *
+     * @return this
+     */
+    public OutputExpectations contains(String text) {
+        return add(new Count("a line containing \"" + text + "\"", line -> line.contains(text), 1,
+            Long.MAX_VALUE));
+    }
+
+    /**
+     * Expects at least one line in which the regular expression is found.
+     *
+     * @param regex The regular expression.
+     *
+     * @return this
+     */
+    public OutputExpectations matches(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return add(new Count("a line matching /" + regex + "/",
+            line -> pattern.matcher(line).find(), 1, Long.MAX_VALUE));
+    }
+
+    /**
+     * Fails as soon as a line contains text.
+     *
+     * @param text The text.
+     *
+     * @return this
+     */
+    public OutputExpectations doesNotContain(String text) {
+        return add(new Count("no line containing \"" + text + "\"", line -> line.contains(text),
+            0, 0));
+    }
+
+    /**
+     * Fails as soon as a line matches the regular expression.
+     *
+     * @param regex The regular expression.
+     *
+     * @return this
+     */
+    public OutputExpectations doesNotMatch(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return add(new Count("no line matching /" + regex + "/",
+            line -> pattern.matcher(line).find(), 0, 0));
+    }
+
+    /**
+     * Expects exactly count lines that contain text. Fails as soon as there are more.
+     *
+     * @param text  The text.
+     * @param count The expected number of lines.
+     *
+     * @return this
+     */
+    public OutputExpectations count(String text, long count) {
+        return countBetween(text, count, count);
+    }
+
+    /**
+     * Expects between min and max (inclusive) lines that contain text. Fails as soon as there are
+     * more than max.
+     *
+     * @param text The text.
+     * @param min  The minimum number of lines.
+     * @param max  The maximum number of lines.
+     *
+     * @return this
+     */
+    public OutputExpectations countBetween(String text, long min, long max) {
+        if (min < 0 || max < min) {
+            throw new IllegalArgumentException(String.format("Invalid range: %d..%d", min, max));
+        }
+        return add(new Count(String.format("%d..%d lines containing \"%s\"", min, max, text),
+            line -> line.contains(text), min, max));
+    }
+
+    /**
+     * Expects lines containing each of texts, in the given order. Other lines may appear in
+     * between. Fails as soon as a line matches a later text before the earlier ones were seen.
+     *
+     * @param texts The texts, in the expected order.
+     *
+     * @return this
+     */
+    public OutputExpectations inOrder(String... texts) {
+        return add(new InOrder(Arrays.asList(texts.clone())));
+    }
+
+    /**
+     * Checks one line of output.
+     *
+     * @param line A line without its line terminator.
+     *
+     * @throws AssertionError If the line breaks an expectation.
+     */
+    public synchronized void accept(String line) {
+        if (failure != null) {
+            return;
+        }
+        lineCount++;
+        for (Expectation expectation : expectations) {
+            String message = expectation.accept(line);
+            if (message != null) {
+                failure = new AssertionError(String.format("Output line %d: %s%n  line: %s",
+                    lineCount, message, line));
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Checks that every expectation was met by the lines accepted so far.
+     *
+     * @throws AssertionError If an expectation failed or wasn't met.
+     */
+    public synchronized void verify() {
+        if (failure != null) {
+            throw failure;
+        }
+        List<String> unmet = new ArrayList<>();
+        for (Expectation expectation : expectations) {
+            String message = expectation.complete();
+            if (message != null) {
+                unmet.add(message);
+            }
+        }
+        if (!unmet.isEmpty()) {
+            failure = new AssertionError(String.format("Output didn't meet expectations after %d "
+                + "lines:%n  %s", lineCount, String.join(String.format("%n  "), unmet)));
+            throw failure;
+        }
+    }
+
+    /**
+     * Feeds lines to the expectations, stopping at the first failure, and then verifies them.
+     *
+     * @param lines The lines to check.
+     *
+     * @throws AssertionError If an expectation failed or wasn't met.
+     */
+    public void verify(Stream<String> lines) {
+        Iterator<String> iterator = lines.iterator();
+        while (iterator.hasNext()) {
+            accept(iterator.next());
+        }
+        verify();
+    }
+
+    public synchronized long getLineCount() {
+        return lineCount;
+    }
+
+    public synchronized boolean isFailed() {
+        return failure != null;
+    }
+
+    private OutputExpectations add(Expectation expectation) {
+        expectations.add(expectation);
+        return this;
+    }
+
+    /*
+     * One expectation. accept() returns a failure message as soon as a line proves the
+     * expectation can't be met; complete() returns one if it wasn't met by the end of the output.
+     */
+    private interface Expectation {
+
+        String accept(String line);
+
+        String complete();
+    }
+
+    @FunctionalInterface
+    private interface LinePredicate {
+
+        boolean test(String line);
+    }
+
+    private static final class Count implements Expectation {
+        private final String description;
+        private final LinePredicate predicate;
+        private final long min;
+        private final long max;
+        private long count;
+
+        private Count(String description, LinePredicate predicate, long min, long max) {
+            this.description = description;
+            this.predicate = predicate;
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public String accept(String line) {
+            if (predicate.test(line) && ++count > max) {
+                return String.format("expected %s, found %d", description, count);
+            }
+            return null;
+        }
+
+        @Override
+        public String complete() {
+            return count < min ? String.format("expected %s, found %d", description, count) : null;
+        }
+    }
+
+    private static final class InOrder implements Expectation {
+        private final List<String> texts;
+        private int next;
+
+        private InOrder(List<String> texts) {
+            this.texts = texts;
+        }
+
+        @Override
+        public String accept(String line) {
+            if (next == texts.size()) {
+                return null;
+            }
+            if (line.contains(texts.get(next))) {
+                next++;
+                return null;
+            }
+            for (int i = next + 1; i < texts.size(); i++) {
+                if (line.contains(texts.get(i))) {
+                    return String.format("expected \"%s\" before \"%s\"", texts.get(next),
+                        texts.get(i));
+                }
+            }
+            return null;
+        }
+
+        @Override
+        public String complete() {
+            return next < texts.size() ? String.format("expected lines in order %s, missing "
+                + "\"%s\"", texts, texts.get(next)) : null;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * A filter applied by {@link FileTreeWalker} to each file it finds. Filters run in two stages: the
+ * name stage, {@link #acceptName(Path)}, sees only the path, and the walker reads an entry's
+ * attributes only if it passes. The attribute stage, {@link #accept(Path, BasicFileAttributes)},
+ * then sees the attributes the walker has read. The glob and extension filters decide everything
+ * in the name stage, so a walk filtered by name alone does not read the attributes of the files
+ * it rejects, except to find out whether they are directories to walk into.
+ *
+ * <pre>
+ *    PathFilter filter = PathFilter.extension("json")
+ *        .and(PathFilter.largerThan(1024))
+ *        .and(PathFilter.modifiedAfter(Instant.now().minus(Duration.ofDays(1))));
+ * </pre>
+ *
+ * @author tjclancy
+ */
+@FunctionalInterface
+public interface PathFilter {
+
+    /**
+     * @param file  The file.
+     * @param attrs The file's attributes, read without following links.
+     *
+     * @return True if the file should be kept.
+     */
+    boolean accept(Path file, BasicFileAttributes attrs);
+
+    /**
+     * The name stage of this filter, run before the file's attributes are read.
+     *
+     * @param file The file.
+     *
+     * @return False if the file is rejected whatever its attributes are.
+     */
+    default boolean acceptName(Path file) {
+        return true;
+    }
+
+    /**
+     * @return False if {@link #acceptName(Path)} alone decides this filter.
+     */
+    default boolean needsAttributes() {
+        return true;
+    }
+
+    default PathFilter and(PathFilter other) {
+        return of((file, attrs) -> accept(file, attrs) && other.accept(file, attrs),
+            file -> acceptName(file) && other.acceptName(file),
+            needsAttributes() || other.needsAttributes());
+    }
+
+    default PathFilter or(PathFilter other) {
+        return of((file, attrs) -> accept(file, attrs) || other.accept(file, attrs),
+            file -> acceptName(file) || other.acceptName(file),
+            needsAttributes() || other.needsAttributes());
+    }
+
+    default PathFilter negate() {
+        boolean needsAttributes = needsAttributes();
+        return of((file, attrs) -> !accept(file, attrs),
+            file -> needsAttributes || !acceptName(file),
+            needsAttributes);
+    }
+
+    static PathFilter all() {
+        return byName(file -> true);
+    }
+
+    /**
+     * Accepts files whose name matches a glob pattern, e.g. "*.{json,xml}". Only the file name is
+     * matched, not the directories above it.
+     *
+     * @param glob The glob pattern, as described by {@link FileSystem#getPathMatcher(String)}.
+     *
+     * @return The filter.
+     */
+    static PathFilter glob(String glob) {
+        return byName(new Predicate<Path>() {
+            private volatile Map.Entry<FileSystem, PathMatcher> matcher;
+
+            @Override
+            public boolean test(Path file) {
+                FileSystem fs = file.getFileSystem();
+                Map.Entry<FileSystem, PathMatcher> current = matcher;
+                if (current == null || current.getKey() != fs) {
+                    current = new AbstractMap.SimpleImmutableEntry<>(fs,
+                        fs.getPathMatcher("glob:" + glob));
+                    matcher = current;
+                }
+                Path name = file.getFileName();
+                return name != null && current.getValue().matches(name);
+            }
+        });
+    }
+
+    /**
+     * Accepts files with one of the given extensions, ignoring case. Extensions are given without
+     * the dot.
+     *
+     * @param extensions The extensions.
+     *
+     * @return The filter.
+     */
+    static PathFilter extension(String... extensions) {
+        String[] suffixes = Arrays.stream(extensions)
+            .map(e -> "." + e.toLowerCase(Locale.ROOT))
+            .toArray(String[]::new);
+        return byName(file -> {
+            Path name = file.getFileName();
+            if (name == null) {
+                return false;
+            }
+            String fileName = name.toString();
+            for (String suffix : suffixes) {
+                if (fileName.regionMatches(true, fileName.length() - suffix.length(), suffix, 0,
+                    suffix.length())) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    /**
+     * Accepts files whose size is between min and max bytes, inclusive.
+     *
+     * @param min The minimum size.
+     * @param max The maximum size.
+     *
+     * @return The filter.
+     */
+    static PathFilter sizeBetween(long min, long max) {
+        return (file, attrs) -> attrs.size() >= min && attrs.size() <= max;
+    }
+
+    static PathFilter largerThan(long size) {
+        return (file, attrs) -> attrs.size() > size;
+    }
+
+    static PathFilter smallerThan(long size) {
+        return (file, attrs) -> attrs.size() < size;
+    }
+
+    static PathFilter modifiedAfter(Instant instant) {
+        return (file, attrs) -> attrs.lastModifiedTime().toInstant().isAfter(instant);
+    }
+
+    static PathFilter modifiedBefore(Instant instant) {
+        return (file, attrs) -> attrs.lastModifiedTime().toInstant().isBefore(instant);
+    }
+
+    private static PathFilter byName(Predicate<Path> name) {
+        return of((file, attrs) -> name.test(file), name, false);
+    }
+
+    private static PathFilter of(PathFilter filter, Predicate<Path> name,
+        boolean needsAttributes) {
+        return new PathFilter() {
+            @Override
+            public boolean accept(Path file, BasicFileAttributes attrs) {
+                return filter.accept(file, attrs);
+            }
+
+            @Override
+            public boolean acceptName(Path file) {
+                return name.test(file);
+            }
+
+            @Override
+            public boolean needsAttributes() {
+                return needsAttributes;
+            }
+        };
+    }
+}
@@ -0,0 +1,378 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An output stream with bounded heap usage for capturing very large output.
+ * <p>
+ * The first bytes written are kept in an in-memory window, which grows as it fills. Everything
+ * past the window is written to a temporary file through memory mapped segments, so the heap
+ * never holds more than the window no matter how much is written. The content can be read back
+ * as an InputStream, a Reader, or a CharSequence view over the buffers without building one
+ * large String.
+ * <p>
+ * The temporary file is deleted when the stream is closed. The input streams and views read the
+ * buffers directly, so they are only valid while this stream is open: reading one after
+ * {@link #close()} throws an IllegalStateException.
+ *
+ * @author tjclancy
+ */
+public class SpillingOutputStream extends OutputStream {
+    public static final int DEFAULT_MEMORY_WINDOW = 8 * 1024 * 1024;
+    public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+    private static final int INITIAL_MEMORY = 8 * 1024;
+
+    private final int memoryWindow;
+    private final int segmentSize;
+    private byte[] memory = new byte[0];
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private Path spillFile;
+    private FileChannel channel;
+    private long size;
+    private boolean closed;
+
+    public SpillingOutputStream() {
+        this(DEFAULT_MEMORY_WINDOW, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public SpillingOutputStream(int memoryWindow) {
+        this(memoryWindow, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a stream that keeps memoryWindow bytes on the heap and maps the spill file in
+     * segments of segmentSize bytes.
+     *
+     * @param memoryWindow The number of bytes kept in memory.
+     * @param segmentSize  The size of each mapped segment of the spill file.
+     */
+    public SpillingOutputStream(int memoryWindow, int segmentSize) {
+        if (memoryWindow < 0) {
+            throw new IllegalArgumentException("memoryWindow must not be negative: "
+                + memoryWindow);
+        }
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("segmentSize must be positive: " + segmentSize);
+        }
+        this.memoryWindow = memoryWindow;
+        this.segmentSize = segmentSize;
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (off < 0 || len < 0 || off + len > b.length) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            int n;
+            if (size < memoryWindow) {
+                n = Math.min(len, memoryWindow - (int) size);
+                ensureMemory((int) size + n);
+                System.arraycopy(b, off, memory, (int) size, n);
+            } else {
+                long spilled = size - memoryWindow;
+                ByteBuffer segment = writableSegment((int) (spilled / segmentSize));
+                segment.position((int) (spilled % segmentSize));
+                n = Math.min(len, segment.remaining());
+                segment.put(b, off, n);
+            }
+            size += n;
+            off += n;
+            len -= n;
+        }
+    }
+
+    /**
+     * @return The total number of bytes written.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return True if more bytes were written than fit in the memory window.
+     */
+    public synchronized boolean isSpilled() {
+        return size > memoryWindow;
+    }
+
+    /**
+     * @return The temporary spill file, or null if nothing has been spilled.
+     */
+    public synchronized Path getSpillFile() {
+        return spillFile;
+    }
+
+    public int getMemoryWindow() {
+        return memoryWindow;
+    }
+
+    /**
+     * Discards the written content. The spill file and its mapped segments are kept for reuse.
+     */
+    public synchronized void reset() {
+        size = 0;
+    }
+
+    /**
+     * Returns a stream that reads the bytes written so far. Bytes written after this call are not
+     * included. The stream can only be read until this stream is closed.
+     *
+     * @return An input stream over the content.
+     */
+    public synchronized InputStream newInputStream() {
+        checkOpen();
+        return new ContentInputStream(size);
+    }
+
+    /**
+     * Returns a reader that decodes the content written so far.
+     *
+     * @param charset The charset the content was written in.
+     *
+     * @return A buffered reader over the content.
+     */
+    public Reader newReader(Charset charset) {
+        return new BufferedReader(new InputStreamReader(newInputStream(), charset));
+    }
+
+    /**
+     * Returns a view of the content written so far as characters, one char per byte. The view
+     * reads the underlying buffers directly, so nothing is copied; it is exact for ASCII and
+     * ISO-8859-1 output. Use {@link #newReader(Charset)} for multi-byte encodings. The view can
+     * only be read until this stream is closed.
+     *
+     * @return A CharSequence view over the content.
+     */
+    public synchronized CharSequence asCharSequence() {
+        checkOpen();
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException(String.format(
+                "The content is too large for a CharSequence: %d bytes", size));
+        }
+        return new ContentCharSequence(0, (int) size);
+    }
+
+    /**
+     * Decodes the whole content into a String using the platform charset. This copies all of the
+     * content onto the heap; prefer the stream or view methods for large output.
+     *
+     * @return The content.
+     */
+    @Override
+    public String toString() {
+        return toString(Charset.defaultCharset());
+    }
+
+    public String toString(Charset charset) {
+        try(InputStream in = newInputStream()) {
+            return new String(in.readAllBytes(), charset);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        segments.clear();
+        if (channel != null) {
+            channel.close();
+            Files.deleteIfExists(spillFile);
+        }
+    }
+
+    /*
+     * Grows the in-memory window to hold at least capacity bytes, doubling up to the full window.
+     */
+    private void ensureMemory(int capacity) {
+        if (capacity > memory.length) {
+            int grown = (int) Math.min(memoryWindow,
+                Math.max(capacity, Math.max(INITIAL_MEMORY, 2L * memory.length)));
+            memory = Arrays.copyOf(memory, grown);
+        }
+    }
+
+    private ByteBuffer writableSegment(int index) throws IOException {
+        if (channel == null) {
+            spillFile = Files.createTempFile("stdout-capture", ".spill");
+            channel = FileChannel.open(spillFile, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        }
+        while (segments.size() <= index) {
+            long position = (long) segments.size() * segmentSize;
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, position, segmentSize));
+        }
+        return segments.get(index);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The stream is closed; its content is no longer "
+                + "readable");
+        }
+    }
+
+    private synchronized byte byteAt(long index) {
+        checkOpen();
+        if (index < memoryWindow) {
+            return memory[(int) index];
+        }
+        long spilled = index - memoryWindow;
+        return segments.get((int) (spilled / segmentSize)).get((int) (spilled % segmentSize));
+    }
+
+    /*
+     * Copies up to len bytes starting at position into b and returns the number copied.
+     */
+    private synchronized int read(long position, byte[] b, int off, int len) {
+        checkOpen();
+        if (position < memoryWindow) {
+            int n = (int) Math.min(len, memoryWindow - position);
+            System.arraycopy(memory, (int) position, b, off, n);
+            return n;
+        }
+        long spilled = position - memoryWindow;
+        ByteBuffer segment = segments.get((int) (spilled / segmentSize)).duplicate();
+        segment.position((int) (spilled % segmentSize));
+        int n = Math.min(len, segment.remaining());
+        segment.get(b, off, n);
+        return n;
+    }
+
+    private final class ContentInputStream extends InputStream {
+        private final long end;
+        private long position;
+
+        private ContentInputStream(long end) {
+            this.end = end;
+        }
+
+        @Override
+        public int read() {
+            if (position >= end) {
+                return -1;
+            }
+            return byteAt(position++) & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int n = SpillingOutputStream.this.read(position, b, off,
+                (int) Math.min(len, end - position));
+            position += n;
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+    }
+
+    private final class ContentCharSequence implements CharSequence {
+        private final int start;
+        private final int length;
+
+        private ContentCharSequence(int start, int length) {
+            this.start = start;
+            this.length = length;
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public char charAt(int index) {
+            if (index < 0 || index >= length) {
+                throw new IndexOutOfBoundsException("index: " + index + ", length: " + length);
+            }
+            return (char) (byteAt(start + (long) index) & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            if (from < 0 || to > length || from > to) {
+                throw new IndexOutOfBoundsException(
+                    String.format("from: %d, to: %d, length: %d", from, to, length));
+            }
+            return new ContentCharSequence(start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            byte[] bytes = new byte[length];
+            int copied = 0;
+            while (copied < length) {
+                copied += read(start + (long) copied, bytes, copied, length - copied);
+            }
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
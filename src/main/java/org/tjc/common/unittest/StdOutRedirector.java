@@ -21,13 +21,41 @@
 package org.tjc.common.unittest;
 
 import java.io.ByteArrayOutputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.util.stream.Stream;
 
 /**
  * A singleton class that Captures std out (System.out), replacing it with a PrintStream that
  * contains a
  * ByteArrayOutputStream.
+ * <p>
+ * {@link #startCapture()} swaps System.out for the whole JVM, so only one capture can be active at
+ * a time. {@link #startThreadCapture()} instead captures only what the calling thread (and threads
+ * it starts while capturing) print: System.out is replaced once by a stream that routes each write
+ * to the writing thread's own buffer, so tests running in parallel can capture at the same time.
+ * Don't mix the two kinds of capture.
+ * <p>
+ * For very large output, {@link #startSpillingCapture(int)} captures into a
+ * {@link SpillingOutputStream}, which keeps a bounded window in memory and spills the rest to a
+ * memory mapped temporary file. Read it back with {@link #openCapturedStream()} or
+ * {@link #capturedCharSequence()} instead of {@link #toString()}.
+ * <p>
+ * {@link #capturedLines()} decodes the captured output a line at a time, and
+ * {@link #startMatchingCapture(OutputExpectations)} checks each line against a set of
+ * {@link OutputExpectations} as it is printed, without keeping the output at all. Both also work
+ * per thread: while the calling thread has a thread capture, {@link #capturedLines()} and
+ * {@link #openCapturedStream()} read that capture, and
+ * {@link #startMatchingThreadCapture(OutputExpectations)} checks only the calling thread's
+ * lines.
+ * <p>
+ * {@link #startCountingCapture()} discards the output and only counts it, for benchmarking code
+ * that prints a lot.
  *
  * @author tjclancy
  */
@@ -37,7 +65,15 @@ public class StdOutRedirector implements AutoCloseable {
 
     private PrintStream stdOut;
     private final PrintStream capturedStdOut;
-    private ByteArrayOutputStream byteArrayOut;
+    private CaptureBuffer byteArrayOut;
+    private SpillingOutputStream spillingOut;
+    private LineMatchingOutputStream matchingOut;
+    private CountingOutputStream countingOut;
+
+    private final InheritableThreadLocal<ThreadCapture> threadCapture =
+        new InheritableThreadLocal<>();
+    private ThreadDemultiplexingPrintStream demultiplexer;
+    private int threadCaptureCount;
 
     private StdOutRedirector() {
         this.capturedStdOut = System.out;
@@ -75,10 +111,26 @@ public class StdOutRedirector implements AutoCloseable {
         return byteArrayOut;
     }
 
+    /**
+     * @return the spillingOut, or null if the last capture wasn't a spilling capture
+     */
+    public SpillingOutputStream getSpillingOut() {
+        return spillingOut;
+    }
+
+    /**
+     * @return the countingOut, or null if the last capture wasn't a counting capture
+     */
+    public CountingOutputStream getCountingOut() {
+        return countingOut;
+    }
+
     public void startCapture() {
         if (!isCapturing()) {
-            if (this.byteArrayOut == null && this.stdOut == null) {
-                this.byteArrayOut = new ByteArrayOutputStream();
+            if (this.byteArrayOut == null || this.stdOut == null) {
+                closeSpillingOut();
+                this.countingOut = null;
+                this.byteArrayOut = new CaptureBuffer();
                 this.stdOut = new PrintStream(byteArrayOut, AUTO_FLUSH);
             }
             System.setOut(stdOut);
@@ -89,19 +141,261 @@ public class StdOutRedirector implements AutoCloseable {
         if (isCapturing()) {
             System.setOut(capturedStdOut);
         }
+        closeMatchingOut();
+    }
+
+    /**
+     * Starts discarding System.out into a {@link CountingOutputStream}, which only counts the
+     * bytes, lines and write calls. Read the counts from {@link #getCountingOut()}. Any previous
+     * capture content is discarded.
+     */
+    public void startCountingCapture() {
+        if (!isCapturing()) {
+            closeSpillingOut();
+            this.byteArrayOut = null;
+            this.countingOut = new CountingOutputStream();
+            this.stdOut = new PrintStream(countingOut, AUTO_FLUSH);
+            System.setOut(stdOut);
+        }
+    }
+
+    /**
+     * Starts capturing System.out into a {@link LineMatchingOutputStream}, which checks each line
+     * against expectations as soon as it is printed and then drops it. A write that breaks an
+     * expectation throws an AssertionError. {@link #stopCapture()} checks the last line if it
+     * wasn't terminated; call {@link OutputExpectations#verify()} afterwards for the
+     * expectations that can only be decided at the end. Any previous capture content is
+     * discarded.
+     *
+     * @param expectations The expectations to check.
+     *
+     * @throws IllegalStateException If System.out is already being captured, including by a
+     *                               thread capture; use
+     *                               {@link #startMatchingThreadCapture(OutputExpectations)} then.
+     */
+    public void startMatchingCapture(OutputExpectations expectations) {
+        if (isCapturing()) {
+            throw new IllegalStateException("System.out is already being captured.");
+        }
+        closeSpillingOut();
+        this.byteArrayOut = null;
+        this.countingOut = null;
+        this.matchingOut = new LineMatchingOutputStream(expectations);
+        this.stdOut = new PrintStream(matchingOut, AUTO_FLUSH);
+        System.setOut(stdOut);
+    }
+
+    /**
+     * Starts capturing System.out into a {@link SpillingOutputStream} that keeps at most
+     * memoryWindow bytes on the heap. Any previous capture content is discarded.
+     *
+     * @param memoryWindow The number of bytes kept in memory before spilling to disk.
+     */
+    public void startSpillingCapture(int memoryWindow) {
+        if (!isCapturing()) {
+            closeSpillingOut();
+            this.byteArrayOut = null;
+            this.countingOut = null;
+            this.spillingOut = new SpillingOutputStream(memoryWindow);
+            this.stdOut = new PrintStream(spillingOut, AUTO_FLUSH);
+            System.setOut(stdOut);
+        }
+    }
+
+    /**
+     * Returns a stream over the captured bytes, read from the capture buffers without being
+     * copied. While the calling thread has a thread capture, that capture is read.
+     *
+     * @return An input stream, or null if nothing has been captured or the capture doesn't keep
+     *         its output.
+     */
+    public InputStream openCapturedStream() {
+        ThreadCapture current = threadCapture.get();
+        if (current != null && current.active) {
+            return current.newInputStream();
+        }
+        if (stdOut != null) {
+            stdOut.flush();
+        }
+        if (spillingOut != null) {
+            return spillingOut.newInputStream();
+        }
+        if (byteArrayOut != null) {
+            return byteArrayOut.newInputStream();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the captured output as a stream of lines, decoded lazily as the stream is consumed,
+     * so a short-circuiting operation such as anyMatch stops reading at the first hit. While the
+     * calling thread has a thread capture, that capture is read. Close the stream when done with
+     * it.
+     *
+     * @return The captured lines, or an empty stream if nothing has been captured.
+     */
+    public Stream<String> capturedLines() {
+        InputStream in = openCapturedStream();
+        if (in == null) {
+            return Stream.empty();
+        }
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in,
+            Charset.defaultCharset()));
+        return reader.lines().onClose(() -> {
+            try {
+                reader.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Returns the captured output as a CharSequence. For a spilling capture this is a view over
+     * the capture buffers (one char per byte, exact for ASCII and ISO-8859-1 output); otherwise it
+     * is the captured String.
+     *
+     * @return The captured output, or null if nothing has been captured.
+     */
+    public CharSequence capturedCharSequence() {
+        if (stdOut != null) {
+            stdOut.flush();
+        }
+        if (spillingOut != null) {
+            return spillingOut.asCharSequence();
+        }
+        return toString();
+    }
+
+    /**
+     * Starts capturing what the calling thread prints to System.out. Threads started by the
+     * calling thread while the capture is active write to the same capture. Calling this while the
+     * thread is already capturing has no effect.
+     */
+    public void startThreadCapture() {
+        if (isOwnThreadCapture(threadCapture.get())) {
+            return;
+        }
+        startThreadCapture(new ThreadCapture(null));
+    }
+
+    /**
+     * Starts checking each line the calling thread (and threads it starts while capturing) prints
+     * against expectations, without keeping the output. A write that breaks an expectation throws
+     * an AssertionError. {@link #stopThreadCapture()} checks the last line if it wasn't
+     * terminated; call {@link OutputExpectations#verify()} afterwards for the expectations that
+     * can only be decided at the end.
+     *
+     * @param expectations The expectations to check.
+     *
+     * @throws IllegalStateException If the calling thread is already capturing.
+     */
+    public void startMatchingThreadCapture(OutputExpectations expectations) {
+        if (isOwnThreadCapture(threadCapture.get())) {
+            throw new IllegalStateException("The calling thread is already capturing.");
+        }
+        startThreadCapture(new ThreadCapture(new LineMatchingOutputStream(expectations)));
+    }
+
+    private void startThreadCapture(ThreadCapture capture) {
+        threadCapture.set(capture);
+        synchronized (this) {
+            if (threadCaptureCount++ == 0) {
+                demultiplexer = new ThreadDemultiplexingPrintStream(System.out, this::threadTarget);
+                System.setOut(demultiplexer);
+            }
+        }
+    }
+
+    /**
+     * Stops the calling thread's capture and returns what was captured. When no thread is
+     * capturing any more, the original System.out is restored.
+     *
+     * @return The captured output, an empty string for a matching capture, or null if the calling
+     *         thread wasn't capturing.
+     */
+    public String stopThreadCapture() {
+        ThreadCapture current = threadCapture.get();
+        if (!isOwnThreadCapture(current)) {
+            return null;
+        }
+        current.active = false;
+        threadCapture.remove();
+        synchronized (this) {
+            if (--threadCaptureCount == 0) {
+                if (System.out == demultiplexer) {
+                    System.setOut(demultiplexer.getFallback());
+                }
+                demultiplexer = null;
+            }
+        }
+        current.closeMatching();
+        return current.toString();
+    }
+
+    /**
+     * @return True if output printed by the calling thread is being captured by a thread capture.
+     */
+    public boolean isCapturingThread() {
+        ThreadCapture current = threadCapture.get();
+        return current != null && current.active;
+    }
+
+    private void closeSpillingOut() {
+        if (spillingOut != null) {
+            try {
+                spillingOut.close();
+            } catch (IOException e) {
+                System.err.format("##### Caught exception: %s%n", e);
+            }
+            spillingOut = null;
+            stdOut = null;
+        }
+    }
+
+    private void closeMatchingOut() {
+        if (matchingOut != null) {
+            LineMatchingOutputStream out = matchingOut;
+            matchingOut = null;
+            stdOut = null;
+            try {
+                out.close();
+            } catch (IOException e) {
+                System.err.format("##### Caught exception: %s%n", e);
+            }
+        }
+    }
+
+    private static boolean isOwnThreadCapture(ThreadCapture capture) {
+        return capture != null && capture.owner == Thread.currentThread() && capture.active;
+    }
+
+    private PrintStream threadTarget() {
+        ThreadCapture current = threadCapture.get();
+        return current != null && current.active ? current.out : null;
     }
 
     @Override
     public void close() throws Exception {
         System.setOut(capturedStdOut);
-        stdOut.close();
-        stdOut = null;
-        byteArrayOut.reset();
-        byteArrayOut = null;
+        closeMatchingOut();
+        if (stdOut != null) {
+            stdOut.close();
+            stdOut = null;
+        }
+        if (byteArrayOut != null) {
+            byteArrayOut.reset();
+            byteArrayOut = null;
+        }
+        closeSpillingOut();
     }
 
     @Override
     public String toString() {
+        if (spillingOut != null) {
+            stdOut.flush();
+            return spillingOut.toString();
+        }
         if (byteArrayOut != null) {
             try {
                 byteArrayOut.flush();
@@ -113,6 +407,50 @@ public class StdOutRedirector implements AutoCloseable {
         return null;
     }
 
+    /*
+     * The buffer of one thread capture, or the line matcher of a matching thread capture. Child
+     * threads inherit the capture; once the owner stops it, their writes go back to the original
+     * stream.
+     */
+    private static final class ThreadCapture {
+        private final Thread owner = Thread.currentThread();
+        private final CaptureBuffer bytes;
+        private final LineMatchingOutputStream matching;
+        private final PrintStream out;
+        private volatile boolean active = true;
+
+        private ThreadCapture(LineMatchingOutputStream matching) {
+            this.matching = matching;
+            this.bytes = matching == null ? new CaptureBuffer() : null;
+            this.out = new PrintStream(matching == null ? bytes : matching, AUTO_FLUSH);
+        }
+
+        private InputStream newInputStream() {
+            out.flush();
+            return bytes == null ? null : bytes.newInputStream();
+        }
+
+        /*
+         * Checks the last line of a matching capture if it wasn't terminated.
+         */
+        private void closeMatching() {
+            if (matching != null) {
+                out.flush();
+                try {
+                    matching.close();
+                } catch (IOException e) {
+                    System.err.format("##### Caught exception: %s%n", e);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            out.flush();
+            return bytes == null ? "" : bytes.toString();
+        }
+    }
+
     private static final class SingletonInstance {
 
         static StdOutRedirector INSTANCE = new StdOutRedirector();
@@ -0,0 +1,399 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Writes large, reproducible test data files. The data is generated in chunks on a thread pool,
+ * into reusable direct buffers, and written to the file in order through a FileChannel, so the
+ * speed is limited by the disk rather than by random number generation.
+ * <p>
+ * Every block of data (64 KB of binary data, or 1024 lines of text) is generated from its own
+ * random generator, seeded from the generator's seed and the block's index. The content of a
+ * file therefore depends only on the seed and the arguments, not on the chunk size or the
+ * parallelism.
+ *
+ * <pre>
+ *    TestDataGenerator generator = TestDataGenerator.create(42);
+ *    generator.writeLines(input, 100_000_000, LineFormat.text(20, 120));
+ *    generator.writeLines(records, 1_000_000, LineFormat.csv(8));
+ *    generator.writeBinary(blob, 10L * 1024 * 1024 * 1024);
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public final class TestDataGenerator {
+    public static final int DEFAULT_CHUNK_SIZE = 4 * 1024 * 1024;
+    public static final long DEFAULT_BUFFER_MEMORY = 64L * 1024 * 1024;
+
+    private static final int BINARY_BLOCK_SIZE = 64 * 1024;
+    private static final int LINES_PER_BLOCK = 1024;
+
+    private final long seed;
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long bufferMemory = DEFAULT_BUFFER_MEMORY;
+
+    private TestDataGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    public static TestDataGenerator create(long seed) {
+        return new TestDataGenerator(seed);
+    }
+
+    /**
+     * @param chunkSize The approximate number of bytes generated by one task. Each chunk needs a
+     *                  direct buffer of about this size; up to twice the parallelism are in use,
+     *                  as far as the {@link #bufferMemory(long) buffer memory} allows.
+     *
+     * @return this
+     */
+    public TestDataGenerator chunkSize(int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        this.chunkSize = chunkSize;
+        return this;
+    }
+
+    public TestDataGenerator parallelism(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+        }
+        this.parallelism = parallelism;
+        return this;
+    }
+
+    /**
+     * @param bufferMemory The most direct buffer memory one write may use. At least one chunk
+     *                     buffer is always allocated, and fewer chunks are generated at a time
+     *                     when the buffers for twice the parallelism wouldn't fit, so the direct
+     *                     memory used doesn't grow with the number of processors.
+     *
+     * @return this
+     */
+    public TestDataGenerator bufferMemory(long bufferMemory) {
+        if (bufferMemory <= 0) {
+            throw new IllegalArgumentException("bufferMemory must be positive: " + bufferMemory);
+        }
+        this.bufferMemory = bufferMemory;
+        return this;
+    }
+
+    /**
+     * Writes size random bytes to file, replacing it if it exists.
+     *
+     * @param file The file.
+     * @param size The number of bytes.
+     *
+     * @return The number of bytes written.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public long writeBinary(Path file, long size) throws IOException {
+        int blocksPerChunk = Math.max(1, chunkSize / BINARY_BLOCK_SIZE);
+        long chunkBytes = (long) blocksPerChunk * BINARY_BLOCK_SIZE;
+        long chunks = (size + chunkBytes - 1) / chunkBytes;
+        return generate(file, chunks, (int) chunkBytes, (chunk, buffer) -> {
+            long start = chunk * chunkBytes;
+            long end = Math.min(size, start + chunkBytes);
+            for (long block = start / BINARY_BLOCK_SIZE; block * BINARY_BLOCK_SIZE < end; block++) {
+                SplittableRandom random = new SplittableRandom(mix64(seed + block));
+                int length = (int) Math.min(BINARY_BLOCK_SIZE, end - block * BINARY_BLOCK_SIZE);
+                int longs = length / Long.BYTES;
+                for (int i = 0; i < longs; i++) {
+                    buffer.putLong(random.nextLong());
+                }
+                long last = random.nextLong();
+                for (int i = longs * Long.BYTES; i < length; i++) {
+                    buffer.put((byte) last);
+                    last >>>= 8;
+                }
+            }
+        });
+    }
+
+    /**
+     * Writes lineCount lines in format to file, each ended by '\n', replacing the file if it
+     * exists.
+     *
+     * @param file      The file.
+     * @param lineCount The number of lines.
+     * @param format    The format of each line.
+     *
+     * @return The number of bytes written.
+     *
+     * @throws IOException If the file can't be written.
+     */
+    public long writeLines(Path file, long lineCount, LineFormat format) throws IOException {
+        int lineCapacity = format.maxLength() + 1;
+        long blocksPerChunk = Math.max(1, chunkSize / ((long) lineCapacity * LINES_PER_BLOCK));
+        long linesPerChunk = blocksPerChunk * LINES_PER_BLOCK;
+        if (linesPerChunk * lineCapacity > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("maxLength is too large: " + format.maxLength());
+        }
+        long chunks = (lineCount + linesPerChunk - 1) / linesPerChunk;
+        return generate(file, chunks, (int) (linesPerChunk * lineCapacity), (chunk, buffer) -> {
+            long start = chunk * linesPerChunk;
+            long end = Math.min(lineCount, start + linesPerChunk);
+            SplittableRandom random = null;
+            for (long line = start; line < end; line++) {
+                if (random == null || line % LINES_PER_BLOCK == 0) {
+                    random = new SplittableRandom(mix64(seed + line / LINES_PER_BLOCK));
+                }
+                int lineStart = buffer.position();
+                format.write(line, random, buffer);
+                if (buffer.position() - lineStart > format.maxLength()) {
+                    throw new IllegalStateException(String.format(
+                        "Line %d is longer than the format's maxLength: %d", line,
+                        format.maxLength()));
+                }
+                buffer.put((byte) '\n');
+            }
+        });
+    }
+
+    /**
+     * Generates one line of text. Implementations write ASCII bytes straight into the buffer,
+     * without the line terminator, and must not write more than {@link #maxLength()} bytes.
+     */
+    public interface LineFormat {
+
+        int maxLength();
+
+        /**
+         * @param lineNumber The 0 based number of the line.
+         * @param random     The random generator to use; it is shared by consecutive lines.
+         * @param line       The buffer to write the line to.
+         */
+        void write(long lineNumber, SplittableRandom random, ByteBuffer line);
+
+        /**
+         * Random words of lower case letters, with line lengths uniformly distributed between
+         * minLength and maxLength.
+         *
+         * @param minLength The minimum line length.
+         * @param maxLength The maximum line length.
+         *
+         * @return The format.
+         */
+        static LineFormat text(int minLength, int maxLength) {
+            if (minLength < 0 || maxLength < minLength) {
+                throw new IllegalArgumentException(String.format("Invalid lengths: %d..%d",
+                    minLength, maxLength));
+            }
+            return new TextFormat(maxLength,
+                random -> random.nextInt(minLength, maxLength + 1));
+        }
+
+        /**
+         * Random words of lower case letters, with normally distributed line lengths, clamped to
+         * 0..maxLength.
+         *
+         * @param meanLength The mean line length.
+         * @param stdDev     The standard deviation of the line length.
+         * @param maxLength  The maximum line length.
+         *
+         * @return The format.
+         */
+        static LineFormat text(double meanLength, double stdDev, int maxLength) {
+            return new TextFormat(maxLength, random -> {
+                long length = Math.round(meanLength + stdDev * gaussian(random));
+                return (int) Math.max(0, Math.min(maxLength, length));
+            });
+        }
+
+        /**
+         * Comma separated records: the line number followed by fields random integers in
+         * [0, 1000000).
+         *
+         * @param fields The number of random fields.
+         *
+         * @return The format.
+         */
+        static LineFormat csv(int fields) {
+            return new LineFormat() {
+                @Override
+                public int maxLength() {
+                    return 19 + fields * 7;
+                }
+
+                @Override
+                public void write(long lineNumber, SplittableRandom random, ByteBuffer line) {
+                    putDecimal(line, lineNumber);
+                    for (int i = 0; i < fields; i++) {
+                        line.put((byte) ',');
+                        putDecimal(line, random.nextInt(1_000_000));
+                    }
+                }
+            };
+        }
+    }
+
+    private long generate(Path file, long chunks, int bufferSize, ChunkFiller filler)
+        throws IOException {
+        long affordable = Math.max(1, bufferMemory / bufferSize);
+        int window = (int) Math.max(1, Math.min(Math.min(chunks, parallelism * 2L), affordable));
+        Deque<ByteBuffer> free = new ArrayDeque<>(window);
+        for (int i = 0; i < window; i++) {
+            free.add(ByteBuffer.allocateDirect(bufferSize));
+        }
+        Deque<Future<ByteBuffer>> inFlight = new ArrayDeque<>(window);
+        int threads = Math.min(parallelism, window);
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "test-data-generator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long written = 0;
+        try(FileChannel out = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long next = 0;
+            while (next < chunks || !inFlight.isEmpty()) {
+                while (next < chunks && !free.isEmpty()) {
+                    ByteBuffer buffer = free.removeFirst();
+                    long chunk = next++;
+                    inFlight.addLast(pool.submit(() -> {
+                        buffer.clear();
+                        filler.fill(chunk, buffer);
+                        buffer.flip();
+                        return buffer;
+                    }));
+                }
+                ByteBuffer buffer = await(inFlight.removeFirst());
+                while (buffer.hasRemaining()) {
+                    written += out.write(buffer);
+                }
+                free.addLast(buffer);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return written;
+    }
+
+    private static ByteBuffer await(Future<ByteBuffer> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while generating test data");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    private static void putDecimal(ByteBuffer buffer, long value) {
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        long divisor = 1;
+        while (value / divisor >= 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + value / divisor % 10));
+        }
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u1)) * Math.cos(2.0 * Math.PI * u2);
+    }
+
+    /*
+     * The MurmurHash3 finalizer, so that nearby seeds give unrelated generators.
+     */
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9e62c1a1b53L;
+        return z ^ (z >>> 33);
+    }
+
+    @FunctionalInterface
+    private interface ChunkFiller {
+
+        void fill(long chunk, ByteBuffer buffer);
+    }
+
+    @FunctionalInterface
+    private interface LengthFunction {
+
+        int next(SplittableRandom random);
+    }
+
+    private static final class TextFormat implements LineFormat {
+        private static final byte[] ALPHABET =
+            "abcdefghijklmnopqrstuvwxyz etaoi".getBytes(StandardCharsets.US_ASCII);
+
+        private final int maxLength;
+        private final LengthFunction length;
+
+        private TextFormat(int maxLength, LengthFunction length) {
+            this.maxLength = maxLength;
+            this.length = length;
+        }
+
+        @Override
+        public int maxLength() {
+            return maxLength;
+        }
+
+        @Override
+        public void write(long lineNumber, SplittableRandom random, ByteBuffer line) {
+            int remaining = length.next(random);
+            while (remaining > 0) {
+                long bits = random.nextLong();
+                for (int i = 0; i < 12 && remaining > 0; i++, remaining--) {
+                    line.put(ALPHABET[(int) (bits & 31)]);
+                    bits >>>= 5;
+                }
+            }
+        }
+    }
+}
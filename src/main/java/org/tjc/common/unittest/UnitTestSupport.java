@@ -25,13 +25,10 @@ package org.tjc.common.unittest;
 
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.OutputStream;
 import java.io.PrintStream;
 import java.nio.charset.Charset;
 import java.nio.file.DirectoryStream;
@@ -39,15 +36,17 @@ import java.nio.file.FileVisitResult;
 import java.nio.file.FileVisitor;
 import java.nio.file.Files;
 import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
-import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static java.util.Arrays.asList;
@@ -68,8 +67,35 @@ public final class UnitTestSupport {
      */
     public static final String OVERRIDE_FORCE_OUTPUT_SYS_PROPERTY = "unit.test.support.override.force.output";
 
+    /*
+     * Set to true to write output through an AsyncOutputSink from the start.
+     */
+    public static final String ASYNC_OUTPUT_SYS_PROPERTY = "unit.test.support.output.async";
+
     protected static final DirectoryStream.Filter<Path> FILES_ONLY_FILTER = filesOnlyFilter();
-    private static final int BUFFER_SIZE = 2048;
+
+    /*
+     * Cached value of the show output system property, so a disabled write costs one volatile read
+     * instead of a synchronized Properties lookup. Kept in sync by setShowOutput() and
+     * refreshShowOutput().
+     */
+    private static volatile boolean showOutput = Boolean.getBoolean(SHOW_OUTPUT_SYS_PROPERTY);
+
+    /*
+     * When not null, output is queued to this sink instead of being written to System.out by the
+     * calling thread.
+     */
+    private static volatile AsyncOutputSink asyncSink =
+        Boolean.getBoolean(ASYNC_OUTPUT_SYS_PROPERTY) ? new AsyncOutputSink(System.out) : null;
+
+    /*
+     * Per thread output buffers used by startBufferedOutput(). The counter lets writes skip the
+     * ThreadLocal lookup entirely while no thread is buffering.
+     */
+    private static final int MAX_RETAINED_BUFFER_CHARS = 1 << 20;
+    private static final ThreadLocal<OutputBuffer> OUTPUT_BUFFER = ThreadLocal.withInitial(
+        OutputBuffer::new);
+    private static final AtomicInteger BUFFERING_THREADS = new AtomicInteger();
 
     /**
      * Private structure makes this a simple utility class.
@@ -79,122 +105,144 @@ public final class UnitTestSupport {
 
     public static void writeln() {
         if (isShowOutput()) {
-            System.out.println();
+            println("");
         }
     }
 
     public static void writeln(Object o) {
         if (isShowOutput()) {
-            System.out.println(o);
+            println(String.valueOf(o));
         }
     }
 
     public static void writeln(String s) {
         if (isShowOutput()) {
-            System.out.println(s);
+            println(s);
         }
     }
 
     public static void writeln(boolean b) {
         if (isShowOutput()) {
-            System.out.println(b);
+            println(String.valueOf(b));
         }
     }
 
     public static void writeln(char c) {
         if (isShowOutput()) {
-            System.out.println(c);
+            println(String.valueOf(c));
         }
     }
 
     public static void writeln(char[] a) {
         if (isShowOutput()) {
-            return;
+            println(String.valueOf(a));
         }
-        System.out.println(a);
     }
 
     public static void writeln(double d) {
         if (isShowOutput()) {
-            System.out.println(d);
+            println(String.valueOf(d));
         }
     }
 
     public static void writeln(float f) {
         if (isShowOutput()) {
-            System.out.println(f);
+            println(String.valueOf(f));
         }
     }
 
     public static void writeln(int i) {
         if (isShowOutput()) {
-            System.out.println(i);
+            println(String.valueOf(i));
         }
     }
 
     public static void writeln(long l) {
         if (isShowOutput()) {
-            System.out.println(l);
+            println(String.valueOf(l));
+        }
+    }
+
+    /**
+     * Writes the supplied string followed by a line separator. The supplier is only called when
+     * output is enabled, so building the string costs nothing when output is off.
+     *
+     * @param supplier Supplies the string to write.
+     */
+    public static void writeln(Supplier<String> supplier) {
+        if (isShowOutput()) {
+            println(supplier.get());
         }
     }
 
     public static void write(Object o) {
         if (isShowOutput()) {
-            System.out.print(o);
+            print(String.valueOf(o));
         }
     }
 
     public static void write(String s) {
         if (isShowOutput()) {
-            System.out.print(s);
+            print(s);
         }
     }
 
     public static void write(boolean b) {
         if (isShowOutput()) {
-            System.out.print(b);
+            print(String.valueOf(b));
         }
     }
 
     public static void write(char c) {
         if (isShowOutput()) {
-            System.out.print(c);
+            print(String.valueOf(c));
         }
     }
 
     public static void write(char[] a) {
         if (isShowOutput()) {
-            System.out.print(a);
+            print(String.valueOf(a));
         }
     }
 
     public static void write(double d) {
         if (isShowOutput()) {
-            System.out.print(d);
+            print(String.valueOf(d));
         }
     }
 
     public static void write(float f) {
         if (isShowOutput()) {
-            System.out.print(f);
+            print(String.valueOf(f));
         }
     }
 
     public static void write(int i) {
         if (isShowOutput()) {
-            System.out.print(i);
+            print(String.valueOf(i));
         }
     }
 
     public static void write(long l) {
         if (isShowOutput()) {
-            System.out.print(l);
+            print(String.valueOf(l));
+        }
+    }
+
+    /**
+     * Writes the supplied string. The supplier is only called when output is enabled.
+     *
+     * @param supplier Supplies the string to write.
+     */
+    public static void write(Supplier<String> supplier) {
+        if (isShowOutput()) {
+            print(supplier.get());
         }
     }
 
     public static void writef(String format, Object... args) {
         if (isShowOutput()) {
-            System.out.printf(format, args);
+            print(String.format(format, args));
         }
     }
 
@@ -202,7 +250,7 @@ public final class UnitTestSupport {
         if (isShowOutput()) {
             if (format != null) {
                 format = format + "\n";
-                System.out.printf(format, args);
+                print(String.format(format, args));
             }
         }
     }
@@ -213,25 +261,37 @@ public final class UnitTestSupport {
 
     public static void writeMessage(String pattern, Object... args) {
         if (isShowOutput()) {
-            writeln(MessageFormat.format(pattern, args));
+            writeln(MessageFormats.format(pattern, args));
         }
     }
 
     public static void writeBanner(String message) {
         if (isShowOutput()) {
-            System.out.println(banner(message));
+            println(banner(message));
+        }
+    }
+
+    /**
+     * Writes a banner around the supplied message. The supplier is only called when output is
+     * enabled.
+     *
+     * @param supplier Supplies the banner message.
+     */
+    public static void writeBanner(Supplier<String> supplier) {
+        if (isShowOutput()) {
+            println(banner(supplier.get()));
         }
     }
 
     public static void writeUnderlined(String message) {
         if (isShowOutput()) {
-            System.out.println(underline(message));
+            println(underline(message));
         }
     }
 
     public static void writeUnderlined(String message, char underlineChar) {
         if (isShowOutput()) {
-            System.out.println(underline(message, underlineChar));
+            println(underline(message, underlineChar));
         }
     }
 
@@ -257,7 +317,9 @@ public final class UnitTestSupport {
     }
 
     public static void writeBanner(String pattern, Object... args) {
-        writeBanner(MessageFormat.format(pattern, args));
+        if (isShowOutput()) {
+            writeBanner(MessageFormats.format(pattern, args));
+        }
     }
 
     public static String banner(String message) {
@@ -314,7 +376,11 @@ public final class UnitTestSupport {
     public static final class Strings {
 
         public static String fromFile(Path path) throws IOException {
-            return new String(Files.readAllBytes(path));
+            return fileToString(path);
+        }
+
+        public static String fromFile(Path path, Charset charset) throws IOException {
+            return fileToString(path, charset);
         }
 
         public static String swap(String s, int indx1, int indx2) {
@@ -352,11 +418,10 @@ public final class UnitTestSupport {
     }
 
     public static boolean isShowOutput() {
-        return getShowOutput() == true;
+        return showOutput;
     }
 
     public static boolean getShowOutput() {
-        boolean showOutput = Boolean.getBoolean(SHOW_OUTPUT_SYS_PROPERTY);
         return showOutput;
     }
 
@@ -375,6 +440,119 @@ public final class UnitTestSupport {
 
     public static void setShowOutput(boolean showOutput) {
         System.setProperty(SHOW_OUTPUT_SYS_PROPERTY, Boolean.toString(showOutput));
+        UnitTestSupport.showOutput = showOutput;
+    }
+
+    /**
+     * Re-reads the show output system property. Only needed when the property is changed with
+     * System.setProperty() instead of {@link #setShowOutput(boolean)}.
+     *
+     * @return The refreshed show output value.
+     */
+    public static boolean refreshShowOutput() {
+        boolean refreshed = Boolean.getBoolean(SHOW_OUTPUT_SYS_PROPERTY);
+        showOutput = refreshed;
+        return refreshed;
+    }
+
+    /**
+     * Writes all output through an {@link AsyncOutputSink} attached to the current System.out,
+     * using the default capacity and blocking when the buffer is full.
+     */
+    public static void enableAsyncOutput() {
+        enableAsyncOutput(AsyncOutputSink.DEFAULT_CAPACITY, AsyncOutputSink.OverflowPolicy.BLOCK);
+    }
+
+    /**
+     * Writes all output through an {@link AsyncOutputSink} attached to the current System.out. An
+     * already enabled sink is flushed and closed first.
+     *
+     * @param capacity       The number of writes that can be buffered.
+     * @param overflowPolicy What to do when the buffer is full.
+     */
+    public static synchronized void enableAsyncOutput(int capacity,
+        AsyncOutputSink.OverflowPolicy overflowPolicy) {
+        AsyncOutputSink previous = asyncSink;
+        asyncSink = new AsyncOutputSink(System.out, capacity, overflowPolicy);
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    /**
+     * Writes everything queued by the async sink and goes back to writing synchronously.
+     */
+    public static synchronized void disableAsyncOutput() {
+        AsyncOutputSink previous = asyncSink;
+        asyncSink = null;
+        if (previous != null) {
+            previous.close();
+        }
+    }
+
+    public static boolean isAsyncOutput() {
+        return asyncSink != null;
+    }
+
+    /**
+     * @return The async sink, or null if async output isn't enabled.
+     */
+    public static AsyncOutputSink getAsyncOutputSink() {
+        return asyncSink;
+    }
+
+    /**
+     * Waits until all queued output has been written. Call this at the end of a test suite, or
+     * before reading output written by another process.
+     */
+    public static void flushOutput() {
+        AsyncOutputSink sink = asyncSink;
+        if (sink != null) {
+            sink.flush();
+        }
+        System.out.flush();
+    }
+
+    /**
+     * Starts buffering the calling thread's output. Everything written by this thread is appended
+     * to a reusable per-thread buffer until {@link #flushBufferedOutput()} writes it as one
+     * contiguous block, so output from tests running in parallel doesn't interleave line by line.
+     * Calling this while the thread is already buffering has no effect.
+     */
+    public static void startBufferedOutput() {
+        OutputBuffer buffer = OUTPUT_BUFFER.get();
+        if (!buffer.active) {
+            buffer.active = true;
+            BUFFERING_THREADS.incrementAndGet();
+        }
+    }
+
+    /**
+     * Writes the calling thread's buffered output as one block and stops buffering. Does nothing
+     * if the thread isn't buffering.
+     */
+    public static void flushBufferedOutput() {
+        OutputBuffer buffer = OUTPUT_BUFFER.get();
+        if (buffer.active) {
+            String text = buffer.stop();
+            if (!text.isEmpty()) {
+                print(text);
+            }
+        }
+    }
+
+    /**
+     * Stops buffering the calling thread's output and throws away what was buffered.
+     */
+    public static void discardBufferedOutput() {
+        OutputBuffer buffer = OUTPUT_BUFFER.get();
+        if (buffer.active) {
+            buffer.stop();
+        }
+    }
+
+    public static boolean isBufferingOutput() {
+        return OUTPUT_BUFFER.get().active;
     }
 
     public static DirectoryStream.Filter<Path> filesOnlyFilter() {
@@ -382,7 +560,8 @@ public final class UnitTestSupport {
     }
 
     /**
-     * Reads and returns all lines from a file.
+     * Reads and returns all lines from a file. When the {@link FixtureCache} is enabled the lines
+     * come from the cache and the list is unmodifiable.
      *
      * @param file The file to read.
      *
@@ -391,12 +570,16 @@ public final class UnitTestSupport {
      * @throws IOException If there is an error reading the file.
      */
     public static List<String> readLines(Path file) throws IOException {
+        FixtureCache cache = FixtureCache.getInstance();
+        if (cache.isEnabled()) {
+            return cache.getLines(file);
+        }
         return Files.readAllLines(file);
     }
 
     /**
-     * Counts and returns the number of lines in a file. This is inefficient but suitable for most
-     * test cases.
+     * Counts and returns the number of lines in a file. The file is memory mapped and scanned
+     * without being decoded; see {@link LineCounter}.
      *
      * @param file The file to read.
      *
@@ -405,7 +588,7 @@ public final class UnitTestSupport {
      * @throws IOException If an error occurs reading the file.
      */
     public static long countLines(Path file) throws IOException {
-        return readLines(file).stream().count();
+        return LineCounter.countLines(file);
     }
 
     /**
@@ -446,7 +629,8 @@ public final class UnitTestSupport {
     }
 
     /**
-     * Reads the contents of a file, returning it as a String.
+     * Reads the contents of a file, decoded with the platform charset, returning it as a String.
+     * When the {@link FixtureCache} is enabled the String comes from the cache.
      *
      * @param path The file to read.
      *
@@ -455,7 +639,43 @@ public final class UnitTestSupport {
      * @throws IOException If an error occurs when reading the file.
      */
     public static String fileToString(Path path) throws IOException {
-        return new String(Files.readAllBytes(path));
+        return fileToString(path, Charset.defaultCharset());
+    }
+
+    /**
+     * Reads the contents of a file, decoded with charset, returning it as a String. The file is
+     * read onto the heap once and the String decodes those bytes into its own array; see
+     * {@link MappedText#read(Path, Charset)}. When the {@link FixtureCache} is enabled the String
+     * comes from the cache.
+     *
+     * @param path    The file to read.
+     * @param charset The charset of the file.
+     *
+     * @return The contents of the file as a String.
+     *
+     * @throws IOException If an error occurs when reading the file.
+     */
+    public static String fileToString(Path path, Charset charset) throws IOException {
+        FixtureCache cache = FixtureCache.getInstance();
+        if (cache.isEnabled()) {
+            return cache.getString(path, charset);
+        }
+        return MappedText.read(path, charset);
+    }
+
+    /**
+     * Returns the contents of a file as a CharSequence. ASCII and ISO-8859-1 content is a view
+     * over the memory mapped file and is not copied onto the heap; see {@link MappedText}.
+     *
+     * @param path    The file to read.
+     * @param charset The charset of the file.
+     *
+     * @return The contents of the file.
+     *
+     * @throws IOException If an error occurs when reading the file.
+     */
+    public static CharSequence fileToCharSequence(Path path, Charset charset) throws IOException {
+        return MappedText.view(path, charset);
     }
 
     public static boolean fileExists(String fileName) {
@@ -509,26 +729,54 @@ public final class UnitTestSupport {
     }
 
     /**
-     * Simple file copy method. Java 7+ introduces the Files utility class that works with Path
-     * objects.
+     * Simple file copy method. The bytes are copied by {@link FileCopier#copy(Path, Path)}
+     * without passing through the heap.
      *
      * @param src A string containing a file path.
      * @param dst A string containing a file path.
      *
      * @throws FileNotFoundException Throws exception if the source file cannot be found.
-     * @throws IOException           Throws if the input stream or output streaam encounter an IO
-     *                               error.
+     * @throws IOException           Throws if the copy encounters an IO error.
      */
     public static void copy(String src, String dst) throws FileNotFoundException, IOException {
-        try(InputStream in = new FileInputStream(src); OutputStream out = new FileOutputStream(dst)) {
-            byte[] buff = new byte[BUFFER_SIZE];
-            int n;
-            while ((n = in.read(buff)) >= 0) {
-                out.write(buff, 0, n);
-            }
+        try {
+            FileCopier.copy(Paths.get(src), Paths.get(dst));
+        } catch (NoSuchFileException e) {
+            FileNotFoundException notFound = new FileNotFoundException(e.getMessage());
+            notFound.initCause(e);
+            throw notFound;
         }
     }
 
+    /**
+     * Copies src to dst with {@link FileCopier#copy(Path, Path)}, replacing dst if it exists.
+     *
+     * @param src The source file.
+     * @param dst The destination file.
+     *
+     * @return The number of bytes copied.
+     *
+     * @throws IOException If either file can't be opened or the copy fails.
+     */
+    public static long copy(Path src, Path dst) throws IOException {
+        return FileCopier.copy(src, dst);
+    }
+
+    /**
+     * Copies the regular files under src to dst in parallel with
+     * {@link FileCopier#copyDirectory(Path, Path)}.
+     *
+     * @param src The source directory.
+     * @param dst The destination directory.
+     *
+     * @return The number of files and bytes copied and the throughput.
+     *
+     * @throws IOException If a directory can't be read or a file can't be copied.
+     */
+    public static FileCopier.CopyResult copyDirectory(Path src, Path dst) throws IOException {
+        return FileCopier.copyDirectory(src, dst);
+    }
+
     /**
      * Returns the files in a directory. If recursive == true then the director is scanned
      * recursively.
@@ -617,6 +865,20 @@ public final class UnitTestSupport {
         return files;
     }
 
+    /**
+     * Returns the regular files under start that pass filter, found in parallel by a
+     * {@link FileTreeWalker}. The files are produced lazily and in no particular order; close the
+     * stream when done with it.
+     *
+     * @param start  The start path.
+     * @param filter The filter files must pass.
+     *
+     * @return The files.
+     */
+    public static Stream<Path> walkFiles(Path start, PathFilter filter) {
+        return FileTreeWalker.create(start).filter(filter).stream();
+    }
+
     public static Path visitFiles(Path path, FileVisitor<Path> visitor) throws IOException {
         return Files.walkFileTree(path, visitor);
     }
@@ -631,13 +893,14 @@ public final class UnitTestSupport {
      * Note: This is original method name but I also like the naming convention the does not start
      * with 'get'.
      * See the method methodName().
+     * <p>
+     * The caller is found with {@link CallerInfo}, which walks only the frames it needs and caches
+     * the formatted name per call site.
      *
      * @return The name of the calling method.
      */
     public static String getMethodName() {
-        final StackTraceElement[] stes = Thread.currentThread().getStackTrace();
-        StackTraceElement ste = stes[2];
-        return String.format("%s()", ste.getMethodName());
+        return CallerInfo.at(1).getDisplayName();
     }
 
     /**
@@ -646,9 +909,7 @@ public final class UnitTestSupport {
      * @return The name of the calling method.
      */
     public static String methodName() {
-        final StackTraceElement[] stes = Thread.currentThread().getStackTrace();
-        StackTraceElement ste = stes[2];
-        return String.format("%s()", ste.getMethodName());
+        return CallerInfo.at(1).getDisplayName();
     }
 
     /**
@@ -657,9 +918,7 @@ public final class UnitTestSupport {
      * @return The name of the calling method.
      */
     public static String thisMethodName() {
-        final StackTraceElement[] stes = Thread.currentThread().getStackTrace();
-        StackTraceElement ste = stes[2];
-        return String.format("%s()", ste.getMethodName());
+        return CallerInfo.at(1).getDisplayName();
     }
 
     @SafeVarargs
@@ -687,4 +946,66 @@ public final class UnitTestSupport {
         return Boolean.toString(b);
     }
 
+    /*
+     * All output goes through print() and println(). Text goes to the calling thread's output
+     * buffer if it is buffering, unless the thread is capturing System.out. Otherwise it is queued
+     * to the async sink, but only while System.out is still the stream the sink writes to; if
+     * System.out has been redirected, e.g. by StdOutRedirector, the text is written to the
+     * redirected stream directly so it can be captured.
+     */
+    private static void print(String s) {
+        if (BUFFERING_THREADS.get() > 0) {
+            OutputBuffer buffer = OUTPUT_BUFFER.get();
+            if (buffer.active && !StdOutRedirector.getInstance().isCapturingThread()) {
+                buffer.text.append(s);
+                return;
+            }
+        }
+        AsyncOutputSink sink = asyncSink;
+        PrintStream out = System.out;
+        if (sink != null && sink.getOut() == out) {
+            sink.write(s);
+        } else {
+            out.print(s);
+        }
+    }
+
+    private static void println(String s) {
+        if (BUFFERING_THREADS.get() > 0) {
+            OutputBuffer buffer = OUTPUT_BUFFER.get();
+            if (buffer.active && !StdOutRedirector.getInstance().isCapturingThread()) {
+                buffer.text.append(s).append(System.lineSeparator());
+                return;
+            }
+        }
+        AsyncOutputSink sink = asyncSink;
+        PrintStream out = System.out;
+        if (sink != null && sink.getOut() == out) {
+            sink.write(s + System.lineSeparator());
+        } else {
+            out.println(s);
+        }
+    }
+
+    /*
+     * A thread's output buffer. The StringBuilder is reused between tests unless it grew very
+     * large.
+     */
+    private static final class OutputBuffer {
+        private StringBuilder text = new StringBuilder();
+        private boolean active;
+
+        private String stop() {
+            active = false;
+            BUFFERING_THREADS.decrementAndGet();
+            String s = text.toString();
+            if (text.capacity() > MAX_RETAINED_BUFFER_CHARS) {
+                text = new StringBuilder();
+            } else {
+                text.setLength(0);
+            }
+            return s;
+        }
+    }
+
 }
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.memfs;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The bytes of one in-memory file, stored as fixed size blocks that are only allocated when
+ * written. Ranges that were never written read as zeros, so a huge sparse file costs only the
+ * blocks that hold data.
+ *
+ * @author tjclancy
+ */
+final class FileContent {
+    static final int BLOCK_SIZE = 16 * 1024;
+    private static final int BLOCK_SHIFT = 14;
+    private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+    private static final byte[] ZEROS = new byte[BLOCK_SIZE];
+
+    private final Map<Long, byte[]> blocks = new HashMap<>();
+    private long size;
+
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * @return The number of bytes of block storage in use.
+     */
+    synchronized long allocatedBytes() {
+        return (long) blocks.size() * BLOCK_SIZE;
+    }
+
+    /**
+     * Reads from position into dst.
+     *
+     * @return The number of bytes read, or -1 if position is at or past the end.
+     */
+    synchronized int read(long position, ByteBuffer dst) {
+        if (position >= size) {
+            return -1;
+        }
+        int count = (int) Math.min(dst.remaining(), size - position);
+        int done = 0;
+        while (done < count) {
+            long offset = position + done;
+            int inBlock = (int) (offset & BLOCK_MASK);
+            int length = Math.min(count - done, BLOCK_SIZE - inBlock);
+            byte[] block = blocks.get(offset >>> BLOCK_SHIFT);
+            dst.put(block == null ? ZEROS : block, block == null ? 0 : inBlock, length);
+            done += length;
+        }
+        return count;
+    }
+
+    /**
+     * Writes src at position, growing the file if needed.
+     *
+     * @return The number of bytes written.
+     */
+    synchronized int write(long position, ByteBuffer src) {
+        int count = src.remaining();
+        int done = 0;
+        while (done < count) {
+            long offset = position + done;
+            int inBlock = (int) (offset & BLOCK_MASK);
+            int length = Math.min(count - done, BLOCK_SIZE - inBlock);
+            byte[] block = blocks.computeIfAbsent(offset >>> BLOCK_SHIFT,
+                k -> new byte[BLOCK_SIZE]);
+            src.get(block, inBlock, length);
+            done += length;
+        }
+        size = Math.max(size, position + count);
+        return count;
+    }
+
+    /**
+     * Sets the size of the file. Growing the file allocates nothing; shrinking it frees the
+     * blocks past the new end.
+     */
+    synchronized void setSize(long newSize) {
+        if (newSize < size) {
+            long lastBlock = newSize == 0 ? -1 : (newSize - 1) >>> BLOCK_SHIFT;
+            blocks.keySet().removeIf(index -> index > lastBlock);
+            byte[] block = blocks.get(lastBlock);
+            int inBlock = (int) (newSize & BLOCK_MASK);
+            if (block != null && inBlock != 0) {
+                System.arraycopy(ZEROS, 0, block, inBlock, BLOCK_SIZE - inBlock);
+            }
+        }
+        size = newSize;
+    }
+
+    synchronized FileContent copy() {
+        FileContent copy = new FileContent();
+        blocks.forEach((index, block) -> copy.blocks.put(index, block.clone()));
+        copy.size = size;
+        return copy;
+    }
+}
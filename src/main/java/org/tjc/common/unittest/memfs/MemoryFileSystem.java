@@ -0,0 +1,502 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.memfs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.ClosedFileSystemException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystem;
+import java.nio.file.FileSystemException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.UserPrincipalLookupService;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * A file system held entirely in memory, for fast and repeatable test fixtures. Paths from it
+ * work with {@link java.nio.file.Files} and with the UnitTestSupport file helpers, and closing it
+ * frees everything at once.
+ * <p>
+ * Files are stored in blocks that are only allocated when written, so a huge sparse file costs
+ * only the data actually written to it. For performance tests, reads and writes can be slowed
+ * down with a simulated per-operation latency and a throughput limit.
+ *
+ * <pre>
+ *    try(MemoryFileSystem fs = MemoryFileSystem.create()) {
+ *        Path dir = Files.createDirectories(fs.getPath("/fixtures/in"));
+ *        Files.writeString(dir.resolve("a.txt"), "hello");
+ *        fs.setLatency(Duration.ofMillis(1));
+ *        fs.setThroughput(50L * 1024 * 1024);
+ *        runJob(dir);
+ *    }
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public final class MemoryFileSystem extends FileSystem {
+    /**
+     * Environment key for {@link java.nio.file.FileSystems#newFileSystem(URI, Map)}: the simulated
+     * latency of each read and write, in nanoseconds.
+     */
+    public static final String LATENCY_NANOS = "latencyNanos";
+
+    /**
+     * Environment key for {@link java.nio.file.FileSystems#newFileSystem(URI, Map)}: the simulated
+     * throughput, in bytes per second. 0 means unlimited.
+     */
+    public static final String BYTES_PER_SECOND = "bytesPerSecond";
+
+    private static final AtomicLong NEXT_ID = new AtomicLong();
+    private static final Set<String> SUPPORTED_VIEWS = Collections.singleton("basic");
+
+    private final MemoryFileSystemProvider provider;
+    private final String name;
+    private final MemoryNode root = MemoryNode.newDirectory();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile boolean open = true;
+    private volatile long latencyNanos;
+    private volatile long bytesPerSecond;
+
+    MemoryFileSystem(MemoryFileSystemProvider provider, String name, Map<String, ?> env) {
+        this.provider = provider;
+        this.name = name;
+        this.latencyNanos = longValue(env.get(LATENCY_NANOS));
+        this.bytesPerSecond = longValue(env.get(BYTES_PER_SECOND));
+    }
+
+    /**
+     * Creates a new, empty file system with a unique name.
+     *
+     * @return The file system.
+     */
+    public static MemoryFileSystem create() {
+        return create("memfs-" + NEXT_ID.incrementAndGet());
+    }
+
+    /**
+     * Creates a new, empty file system, reachable through URIs of the form memfs://name/path
+     * until it is closed.
+     *
+     * @param name The file system's name.
+     *
+     * @return The file system.
+     *
+     * @throws java.nio.file.FileSystemAlreadyExistsException If a file system with the name is
+     *                                                        open.
+     */
+    public static MemoryFileSystem create(String name) {
+        return MemoryFileSystemProvider.instance().newFileSystem(name, Collections.emptyMap());
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Duration getLatency() {
+        return Duration.ofNanos(latencyNanos);
+    }
+
+    /**
+     * Sets the simulated latency added to every read and write.
+     *
+     * @param latency The latency, or Duration.ZERO for none.
+     */
+    public void setLatency(Duration latency) {
+        this.latencyNanos = latency.toNanos();
+    }
+
+    public long getThroughput() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Sets the simulated throughput of reads and writes.
+     *
+     * @param bytesPerSecond The throughput in bytes per second, or 0 for unlimited.
+     */
+    public void setThroughput(long bytesPerSecond) {
+        if (bytesPerSecond < 0) {
+            throw new IllegalArgumentException("bytesPerSecond must not be negative: "
+                + bytesPerSecond);
+        }
+        this.bytesPerSecond = bytesPerSecond;
+    }
+
+    /**
+     * @return The bytes of block storage used by all files, which for sparse files is less than
+     *         their size.
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            return allocatedBytes(root);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public MemoryFileSystemProvider provider() {
+        return provider;
+    }
+
+    /**
+     * Closes the file system and drops all of its files.
+     */
+    @Override
+    public void close() {
+        if (open) {
+            open = false;
+            lock.writeLock().lock();
+            try {
+                root.children().clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            provider.remove(this);
+        }
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public String getSeparator() {
+        return "/";
+    }
+
+    @Override
+    public Iterable<Path> getRootDirectories() {
+        return Collections.singletonList(new MemoryPath(this, "/"));
+    }
+
+    @Override
+    public Iterable<FileStore> getFileStores() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public Set<String> supportedFileAttributeViews() {
+        return SUPPORTED_VIEWS;
+    }
+
+    @Override
+    public MemoryPath getPath(String first, String... more) {
+        if (more.length == 0) {
+            return new MemoryPath(this, first);
+        }
+        StringBuilder path = new StringBuilder(first);
+        for (String segment : more) {
+            if (!segment.isEmpty()) {
+                if (path.length() > 0) {
+                    path.append('/');
+                }
+                path.append(segment);
+            }
+        }
+        return new MemoryPath(this, path.toString());
+    }
+
+    @Override
+    public PathMatcher getPathMatcher(String syntaxAndPattern) {
+        int colon = syntaxAndPattern.indexOf(':');
+        if (colon <= 0) {
+            throw new IllegalArgumentException("Expected syntax:pattern, got " + syntaxAndPattern);
+        }
+        String syntax = syntaxAndPattern.substring(0, colon);
+        String pattern = syntaxAndPattern.substring(colon + 1);
+        Pattern regex;
+        if (syntax.equalsIgnoreCase("glob")) {
+            regex = Pattern.compile(Globs.toRegex(pattern));
+        } else if (syntax.equalsIgnoreCase("regex")) {
+            regex = Pattern.compile(pattern);
+        } else {
+            throw new UnsupportedOperationException("Syntax not supported: " + syntax);
+        }
+        return path -> regex.matcher(path.toString()).matches();
+    }
+
+    @Override
+    public UserPrincipalLookupService getUserPrincipalLookupService() {
+        throw new UnsupportedOperationException("User principals are not supported");
+    }
+
+    @Override
+    public WatchService newWatchService() {
+        throw new UnsupportedOperationException("Watching is not supported");
+    }
+
+    @Override
+    public String toString() {
+        return MemoryFileSystemProvider.SCHEME + "://" + name;
+    }
+
+    void checkOpen() {
+        if (!open) {
+            throw new ClosedFileSystemException();
+        }
+    }
+
+    /*
+     * Waits for the simulated cost of an operation that moved count bytes.
+     */
+    void throttle(long count) {
+        long nanos = latencyNanos;
+        long rate = bytesPerSecond;
+        if (rate > 0) {
+            nanos += count * TimeUnit.SECONDS.toNanos(1) / rate;
+        }
+        if (nanos > 0) {
+            long deadline = System.nanoTime() + nanos;
+            long remaining = nanos;
+            while (remaining > 0) {
+                LockSupport.parkNanos(remaining);
+                remaining = deadline - System.nanoTime();
+            }
+        }
+    }
+
+    MemoryNode lookup(MemoryPath path) throws IOException {
+        lock.readLock().lock();
+        try {
+            return find(path);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+     * Returns the node at path, creating an empty file if it doesn't exist and create is true.
+     */
+    MemoryNode openFile(MemoryPath path, boolean create, boolean createNew) throws IOException {
+        lock.writeLock().lock();
+        try {
+            MemoryNode parent = parentOf(path);
+            String fileName = fileName(path);
+            MemoryNode node = parent.children().get(fileName);
+            if (node != null) {
+                if (createNew) {
+                    throw new FileAlreadyExistsException(path.toString());
+                }
+                if (node.isDirectory()) {
+                    throw new FileSystemException(path.toString(), null, "Is a directory");
+                }
+                return node;
+            }
+            if (!create) {
+                throw new NoSuchFileException(path.toString());
+            }
+            node = MemoryNode.newFile();
+            parent.children().put(fileName, node);
+            parent.touch();
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void createDirectory(MemoryPath path) throws IOException {
+        lock.writeLock().lock();
+        try {
+            MemoryNode parent = parentOf(path);
+            String fileName = fileName(path);
+            if (parent.children().containsKey(fileName)) {
+                throw new FileAlreadyExistsException(path.toString());
+            }
+            parent.children().put(fileName, MemoryNode.newDirectory());
+            parent.touch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void delete(MemoryPath path) throws IOException {
+        lock.writeLock().lock();
+        try {
+            MemoryNode parent = parentOf(path);
+            String fileName = fileName(path);
+            MemoryNode node = parent.children().get(fileName);
+            if (node == null) {
+                throw new NoSuchFileException(path.toString());
+            }
+            if (node.isDirectory() && !node.children().isEmpty()) {
+                throw new DirectoryNotEmptyException(path.toString());
+            }
+            parent.children().remove(fileName);
+            parent.touch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Deletes the node at path if it is still the given node; used for DELETE_ON_CLOSE.
+     */
+    void deleteIfSame(MemoryPath path, MemoryNode node) {
+        lock.writeLock().lock();
+        try {
+            MemoryNode parent = find(path.toAbsolutePath().normalize().getParent());
+            String fileName = fileName(path);
+            if (parent.children().get(fileName) == node) {
+                parent.children().remove(fileName);
+            }
+        } catch (IOException e) {
+            // Already gone.
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void copy(MemoryPath source, MemoryPath target, boolean replace, boolean copyAttributes,
+        boolean move) throws IOException {
+        lock.writeLock().lock();
+        try {
+            MemoryNode sourceParent = parentOf(source);
+            String sourceName = fileName(source);
+            MemoryNode node = sourceParent.children().get(sourceName);
+            if (node == null) {
+                throw new NoSuchFileException(source.toString());
+            }
+            MemoryPath sourcePath = source.toAbsolutePath().normalize();
+            MemoryPath targetPath = target.toAbsolutePath().normalize();
+            if (sourcePath.equals(targetPath)) {
+                return;
+            }
+            if (move && node.isDirectory() && targetPath.startsWith(sourcePath)) {
+                throw new FileSystemException(source.toString(), target.toString(),
+                    "Cannot move a directory into itself");
+            }
+            MemoryNode targetParent = parentOf(target);
+            String targetName = fileName(target);
+            MemoryNode existing = targetParent.children().get(targetName);
+            if (existing != null) {
+                if (!replace) {
+                    throw new FileAlreadyExistsException(target.toString());
+                }
+                if (existing.isDirectory() && !existing.children().isEmpty()) {
+                    throw new DirectoryNotEmptyException(target.toString());
+                }
+            }
+            if (move) {
+                sourceParent.children().remove(sourceName);
+                sourceParent.touch();
+                targetParent.children().put(targetName, node);
+            } else {
+                targetParent.children().put(targetName, node.copy(copyAttributes));
+            }
+            targetParent.touch();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<String> list(MemoryPath dir) throws IOException {
+        lock.readLock().lock();
+        try {
+            MemoryNode node = find(dir);
+            if (!node.isDirectory()) {
+                throw new NotDirectoryException(dir.toString());
+            }
+            return new ArrayList<>(node.children().keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private MemoryNode find(MemoryPath path) throws IOException {
+        checkOpen();
+        MemoryNode node = root;
+        for (String name : path.toAbsolutePath().normalize().names()) {
+            if (!node.isDirectory()) {
+                throw new NoSuchFileException(path.toString());
+            }
+            node = node.children().get(name);
+            if (node == null) {
+                throw new NoSuchFileException(path.toString());
+            }
+        }
+        return node;
+    }
+
+    private MemoryNode parentOf(MemoryPath path) throws IOException {
+        MemoryPath parent = path.toAbsolutePath().normalize().getParent();
+        if (parent == null) {
+            throw new FileSystemException(path.toString(), null, "Not allowed on the root");
+        }
+        MemoryNode node = find(parent);
+        if (!node.isDirectory()) {
+            throw new NoSuchFileException(path.toString());
+        }
+        return node;
+    }
+
+    private static String fileName(MemoryPath path) {
+        return path.toAbsolutePath().normalize().getFileName().toString();
+    }
+
+    private static long allocatedBytes(MemoryNode node) {
+        if (!node.isDirectory()) {
+            return node.content().allocatedBytes();
+        }
+        long total = 0;
+        for (MemoryNode child : node.children().values()) {
+            total += allocatedBytes(child);
+        }
+        return total;
+    }
+
+    private static long longValue(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        }
+        return Long.parseLong(value.toString());
+    }
+}
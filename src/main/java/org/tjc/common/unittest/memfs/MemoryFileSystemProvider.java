@@ -0,0 +1,435 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.memfs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AccessMode;
+import java.nio.file.CopyOption;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileStore;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.LinkOption;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributeView;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.FileAttributeView;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The provider of {@link MemoryFileSystem}s, for the URI scheme "memfs". A file system is named
+ * by the authority of its URIs: memfs://name/path. The provider is registered as a service, so
+ * {@link java.nio.file.FileSystems#newFileSystem(URI, Map)} and {@link java.nio.file.Path#of(URI)}
+ * find it; most tests simply call {@link MemoryFileSystem#create()}.
+ *
+ * @author tjclancy
+ */
+public final class MemoryFileSystemProvider extends FileSystemProvider {
+    public static final String SCHEME = "memfs";
+
+    private static final List<String> BASIC_ATTRIBUTES = Arrays.asList("lastModifiedTime",
+        "lastAccessTime", "creationTime", "size", "isRegularFile", "isDirectory",
+        "isSymbolicLink", "isOther", "fileKey");
+
+    private final Map<String, MemoryFileSystem> fileSystems = new ConcurrentHashMap<>();
+
+    /**
+     * Called by the service loader. Use {@link #instance()} to get the installed provider.
+     */
+    public MemoryFileSystemProvider() {
+    }
+
+    /**
+     * @return The installed provider, or a private instance if it isn't installed.
+     */
+    public static MemoryFileSystemProvider instance() {
+        return SingletonInstance.INSTANCE;
+    }
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public MemoryFileSystem newFileSystem(URI uri, Map<String, ?> env) {
+        checkUri(uri);
+        return newFileSystem(uri.getAuthority(), env);
+    }
+
+    MemoryFileSystem newFileSystem(String name, Map<String, ?> env) {
+        MemoryFileSystem fileSystem = new MemoryFileSystem(this, name, env);
+        if (fileSystems.putIfAbsent(name, fileSystem) != null) {
+            throw new FileSystemAlreadyExistsException(name);
+        }
+        return fileSystem;
+    }
+
+    @Override
+    public MemoryFileSystem getFileSystem(URI uri) {
+        checkUri(uri);
+        MemoryFileSystem fileSystem = fileSystems.get(uri.getAuthority());
+        if (fileSystem == null) {
+            throw new FileSystemNotFoundException(uri.toString());
+        }
+        return fileSystem;
+    }
+
+    @Override
+    public Path getPath(URI uri) {
+        return getFileSystem(uri).getPath(uri.getPath().isEmpty() ? "/" : uri.getPath());
+    }
+
+    @Override
+    public SeekableByteChannel newByteChannel(Path path, Set<? extends OpenOption> options,
+        FileAttribute<?>... attrs) throws IOException {
+        return newFileChannel(path, options, attrs);
+    }
+
+    @Override
+    public FileChannel newFileChannel(Path path, Set<? extends OpenOption> options,
+        FileAttribute<?>... attrs) throws IOException {
+        MemoryPath file = check(path);
+        checkNoAttributes(attrs);
+        boolean append = options.contains(StandardOpenOption.APPEND);
+        boolean writable = append || options.contains(StandardOpenOption.WRITE);
+        boolean readable = options.contains(StandardOpenOption.READ) || !writable;
+        if (append && options.contains(StandardOpenOption.READ)) {
+            throw new IllegalArgumentException("READ + APPEND not allowed");
+        }
+        if (append && options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+            throw new IllegalArgumentException("APPEND + TRUNCATE_EXISTING not allowed");
+        }
+        boolean createNew = writable && options.contains(StandardOpenOption.CREATE_NEW);
+        boolean create = createNew || (writable && options.contains(StandardOpenOption.CREATE));
+        MemoryFileSystem fileSystem = file.getFileSystem();
+        MemoryNode node = fileSystem.openFile(file, create, createNew);
+        if (writable && options.contains(StandardOpenOption.TRUNCATE_EXISTING)) {
+            node.content().setSize(0);
+            node.touch();
+        }
+        Runnable onClose = options.contains(StandardOpenOption.DELETE_ON_CLOSE)
+            ? () -> fileSystem.deleteIfSame(file, node)
+            : null;
+        fileSystem.throttle(0);
+        return new MemoryFileChannel(fileSystem, node, readable, writable, append, onClose);
+    }
+
+    @Override
+    public DirectoryStream<Path> newDirectoryStream(Path dir,
+        DirectoryStream.Filter<? super Path> filter) throws IOException {
+        MemoryPath directory = check(dir);
+        List<String> names = directory.getFileSystem().list(directory);
+        directory.getFileSystem().throttle(0);
+        return new DirectoryStream<Path>() {
+            private boolean iterated;
+            private boolean closed;
+
+            @Override
+            public Iterator<Path> iterator() {
+                if (closed || iterated) {
+                    throw new IllegalStateException(closed ? "Directory stream is closed"
+                        : "Iterator already obtained");
+                }
+                iterated = true;
+                Iterator<String> children = names.iterator();
+                return new Iterator<Path>() {
+                    private Path next;
+
+                    @Override
+                    public boolean hasNext() {
+                        while (next == null && !closed && children.hasNext()) {
+                            Path child = directory.resolve(children.next());
+                            try {
+                                if (filter == null || filter.accept(child)) {
+                                    next = child;
+                                }
+                            } catch (IOException e) {
+                                throw new DirectoryIteratorException(e);
+                            }
+                        }
+                        return next != null;
+                    }
+
+                    @Override
+                    public Path next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        Path child = next;
+                        next = null;
+                        return child;
+                    }
+                };
+            }
+
+            @Override
+            public void close() {
+                closed = true;
+            }
+        };
+    }
+
+    @Override
+    public void createDirectory(Path dir, FileAttribute<?>... attrs) throws IOException {
+        checkNoAttributes(attrs);
+        MemoryPath directory = check(dir);
+        directory.getFileSystem().createDirectory(directory);
+    }
+
+    @Override
+    public void delete(Path path) throws IOException {
+        MemoryPath file = check(path);
+        file.getFileSystem().delete(file);
+    }
+
+    @Override
+    public void copy(Path source, Path target, CopyOption... options) throws IOException {
+        copyOrMove(source, target, options, false);
+    }
+
+    @Override
+    public void move(Path source, Path target, CopyOption... options) throws IOException {
+        copyOrMove(source, target, options, true);
+    }
+
+    @Override
+    public boolean isSameFile(Path path, Path path2) throws IOException {
+        if (path.equals(path2)) {
+            return true;
+        }
+        if (!(path2 instanceof MemoryPath) || path.getFileSystem() != path2.getFileSystem()) {
+            return false;
+        }
+        MemoryPath first = check(path);
+        MemoryPath second = check(path2);
+        return first.getFileSystem().lookup(first) == second.getFileSystem().lookup(second);
+    }
+
+    @Override
+    public boolean isHidden(Path path) {
+        Path name = check(path).getFileName();
+        return name != null && name.toString().startsWith(".");
+    }
+
+    @Override
+    public FileStore getFileStore(Path path) {
+        throw new UnsupportedOperationException("File stores are not supported");
+    }
+
+    @Override
+    public void checkAccess(Path path, AccessMode... modes) throws IOException {
+        MemoryPath file = check(path);
+        file.getFileSystem().lookup(file);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <V extends FileAttributeView> V getFileAttributeView(Path path, Class<V> type,
+        LinkOption... options) {
+        if (type != BasicFileAttributeView.class) {
+            return null;
+        }
+        MemoryPath file = check(path);
+        return (V) new BasicFileAttributeView() {
+            @Override
+            public String name() {
+                return "basic";
+            }
+
+            @Override
+            public BasicFileAttributes readAttributes() throws IOException {
+                return new MemoryFileAttributes(file.getFileSystem().lookup(file));
+            }
+
+            @Override
+            public void setTimes(FileTime lastModifiedTime, FileTime lastAccessTime,
+                FileTime createTime) throws IOException {
+                file.getFileSystem().lookup(file).setTimes(lastModifiedTime, lastAccessTime,
+                    createTime);
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <A extends BasicFileAttributes> A readAttributes(Path path, Class<A> type,
+        LinkOption... options) throws IOException {
+        if (type != BasicFileAttributes.class) {
+            throw new UnsupportedOperationException("Attributes not supported: " + type.getName());
+        }
+        MemoryPath file = check(path);
+        return (A) new MemoryFileAttributes(file.getFileSystem().lookup(file));
+    }
+
+    @Override
+    public Map<String, Object> readAttributes(Path path, String attributes,
+        LinkOption... options) throws IOException {
+        BasicFileAttributes attrs = readAttributes(path, BasicFileAttributes.class, options);
+        List<String> names = attributeNames(attributes);
+        Map<String, Object> values = new HashMap<>();
+        for (String name : names) {
+            values.put(name, attributeValue(attrs, name));
+        }
+        return values;
+    }
+
+    @Override
+    public void setAttribute(Path path, String attribute, Object value, LinkOption... options)
+        throws IOException {
+        List<String> names = attributeNames(attribute);
+        if (names.size() != 1) {
+            throw new IllegalArgumentException("Expected one attribute: " + attribute);
+        }
+        BasicFileAttributeView view = getFileAttributeView(path, BasicFileAttributeView.class);
+        FileTime time = (FileTime) value;
+        switch (names.get(0)) {
+            case "lastModifiedTime":
+                view.setTimes(time, null, null);
+                break;
+            case "lastAccessTime":
+                view.setTimes(null, time, null);
+                break;
+            case "creationTime":
+                view.setTimes(null, null, time);
+                break;
+            default:
+                throw new IllegalArgumentException("Attribute can't be set: " + attribute);
+        }
+    }
+
+    void remove(MemoryFileSystem fileSystem) {
+        fileSystems.remove(fileSystem.getName(), fileSystem);
+    }
+
+    private void copyOrMove(Path source, Path target, CopyOption[] options, boolean move)
+        throws IOException {
+        MemoryPath from = check(source);
+        MemoryPath to = check(target);
+        if (from.getFileSystem() != to.getFileSystem()) {
+            throw new ProviderMismatchException("Paths are in different memory file systems");
+        }
+        List<CopyOption> list = Arrays.asList(options);
+        from.getFileSystem().copy(from, to, list.contains(StandardCopyOption.REPLACE_EXISTING),
+            move || list.contains(StandardCopyOption.COPY_ATTRIBUTES), move);
+    }
+
+    private static List<String> attributeNames(String attributes) {
+        String list = attributes;
+        int colon = attributes.indexOf(':');
+        if (colon >= 0) {
+            String view = attributes.substring(0, colon);
+            if (!view.equals("basic")) {
+                throw new UnsupportedOperationException("View not supported: " + view);
+            }
+            list = attributes.substring(colon + 1);
+        }
+        if (list.equals("*")) {
+            return BASIC_ATTRIBUTES;
+        }
+        List<String> names = Arrays.asList(list.split(","));
+        for (String name : names) {
+            if (!BASIC_ATTRIBUTES.contains(name)) {
+                throw new IllegalArgumentException("Unknown attribute: " + name);
+            }
+        }
+        return names;
+    }
+
+    private static Object attributeValue(BasicFileAttributes attrs, String name) {
+        switch (name) {
+            case "lastModifiedTime":
+                return attrs.lastModifiedTime();
+            case "lastAccessTime":
+                return attrs.lastAccessTime();
+            case "creationTime":
+                return attrs.creationTime();
+            case "size":
+                return attrs.size();
+            case "isRegularFile":
+                return attrs.isRegularFile();
+            case "isDirectory":
+                return attrs.isDirectory();
+            case "isSymbolicLink":
+                return attrs.isSymbolicLink();
+            case "isOther":
+                return attrs.isOther();
+            default:
+                return attrs.fileKey();
+        }
+    }
+
+    private static MemoryPath check(Path path) {
+        if (!(path instanceof MemoryPath)) {
+            throw new ProviderMismatchException();
+        }
+        return (MemoryPath) path;
+    }
+
+    private static void checkUri(URI uri) {
+        if (!SCHEME.equalsIgnoreCase(uri.getScheme()) || uri.getAuthority() == null) {
+            throw new IllegalArgumentException("Expected a URI of the form memfs://name/path: "
+                + uri);
+        }
+    }
+
+    private static void checkNoAttributes(FileAttribute<?>[] attrs) {
+        if (attrs.length > 0) {
+            throw new UnsupportedOperationException("Initial attributes are not supported: "
+                + attrs[0].name());
+        }
+    }
+
+    private static final class SingletonInstance {
+
+        static MemoryFileSystemProvider INSTANCE = find();
+
+        private static MemoryFileSystemProvider find() {
+            for (FileSystemProvider provider : FileSystemProvider.installedProviders()) {
+                if (provider instanceof MemoryFileSystemProvider) {
+                    return (MemoryFileSystemProvider) provider;
+                }
+            }
+            return new MemoryFileSystemProvider();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.memfs;
+
+import java.nio.file.attribute.FileTime;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * A file or directory in a {@link MemoryFileSystem}. The children of a directory are guarded by
+ * the file system's lock; the content of a file guards itself.
+ *
+ * @author tjclancy
+ */
+final class MemoryNode {
+    private final Map<String, MemoryNode> children;
+    private volatile FileContent content;
+    private volatile FileTime creationTime;
+    private volatile FileTime lastModifiedTime;
+    private volatile FileTime lastAccessTime;
+
+    private MemoryNode(Map<String, MemoryNode> children, FileContent content) {
+        this.children = children;
+        this.content = content;
+        FileTime now = now();
+        this.creationTime = now;
+        this.lastModifiedTime = now;
+        this.lastAccessTime = now;
+    }
+
+    static MemoryNode newDirectory() {
+        return new MemoryNode(new TreeMap<>(), null);
+    }
+
+    static MemoryNode newFile() {
+        return new MemoryNode(null, new FileContent());
+    }
+
+    static FileTime now() {
+        return FileTime.fromMillis(System.currentTimeMillis());
+    }
+
+    boolean isDirectory() {
+        return children != null;
+    }
+
+    Map<String, MemoryNode> children() {
+        return children;
+    }
+
+    FileContent content() {
+        return content;
+    }
+
+    void setContent(FileContent content) {
+        this.content = content;
+    }
+
+    long size() {
+        return isDirectory() ? 0 : content.size();
+    }
+
+    FileTime getCreationTime() {
+        return creationTime;
+    }
+
+    FileTime getLastModifiedTime() {
+        return lastModifiedTime;
+    }
+
+    FileTime getLastAccessTime() {
+        return lastAccessTime;
+    }
+
+    void setTimes(FileTime lastModified, FileTime lastAccess, FileTime creation) {
+        if (lastModified != null) {
+            this.lastModifiedTime = lastModified;
+        }
+        if (lastAccess != null) {
+            this.lastAccessTime = lastAccess;
+        }
+        if (creation != null) {
+            this.creationTime = creation;
+        }
+    }
+
+    void touch() {
+        this.lastModifiedTime = now();
+    }
+
+    /**
+     * @return A copy of a file node, or an empty directory for a directory node.
+     */
+    MemoryNode copy(boolean copyTimes) {
+        MemoryNode copy = isDirectory() ? newDirectory() : new MemoryNode(null, content.copy());
+        if (copyTimes) {
+            copy.setTimes(lastModifiedTime, lastAccessTime, creationTime);
+        }
+        return copy;
+    }
+}
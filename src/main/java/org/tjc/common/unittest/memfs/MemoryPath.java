@@ -0,0 +1,317 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.memfs;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.file.InvalidPathException;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.ProviderMismatchException;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+
+/**
+ * A path in a {@link MemoryFileSystem}. Paths use '/' as the separator and have a single root,
+ * "/"; relative paths are resolved against the root.
+ *
+ * @author tjclancy
+ */
+public final class MemoryPath implements Path {
+    private static final String[] NO_NAMES = new String[0];
+
+    private final MemoryFileSystem fileSystem;
+    private final String path;
+    private volatile String[] names;
+
+    MemoryPath(MemoryFileSystem fileSystem, String path) {
+        this.fileSystem = fileSystem;
+        this.path = normalizeSeparators(path);
+    }
+
+    @Override
+    public MemoryFileSystem getFileSystem() {
+        return fileSystem;
+    }
+
+    @Override
+    public boolean isAbsolute() {
+        return path.startsWith("/");
+    }
+
+    @Override
+    public MemoryPath getRoot() {
+        return isAbsolute() ? new MemoryPath(fileSystem, "/") : null;
+    }
+
+    @Override
+    public MemoryPath getFileName() {
+        String[] n = names();
+        if (n.length == 0) {
+            return null;
+        }
+        return n.length == 1 && !isAbsolute() ? this : new MemoryPath(fileSystem, n[n.length - 1]);
+    }
+
+    @Override
+    public MemoryPath getParent() {
+        String[] n = names();
+        if (n.length == 0) {
+            return null;
+        }
+        if (n.length == 1) {
+            return getRoot();
+        }
+        return new MemoryPath(fileSystem, (isAbsolute() ? "/" : "")
+            + String.join("/", Arrays.copyOf(n, n.length - 1)));
+    }
+
+    @Override
+    public int getNameCount() {
+        return names().length;
+    }
+
+    @Override
+    public MemoryPath getName(int index) {
+        String[] n = names();
+        if (index < 0 || index >= n.length) {
+            throw new IllegalArgumentException("Invalid name index: " + index);
+        }
+        return new MemoryPath(fileSystem, n[index]);
+    }
+
+    @Override
+    public MemoryPath subpath(int beginIndex, int endIndex) {
+        String[] n = names();
+        if (beginIndex < 0 || endIndex > n.length || beginIndex >= endIndex) {
+            throw new IllegalArgumentException(String.format("Invalid subpath: %d, %d",
+                beginIndex, endIndex));
+        }
+        return new MemoryPath(fileSystem, String.join("/", Arrays.copyOfRange(n, beginIndex,
+            endIndex)));
+    }
+
+    @Override
+    public boolean startsWith(Path other) {
+        if (!(other instanceof MemoryPath) || other.getFileSystem() != fileSystem) {
+            return false;
+        }
+        MemoryPath that = (MemoryPath) other;
+        if (isAbsolute() != that.isAbsolute()) {
+            return false;
+        }
+        String[] n = names();
+        String[] o = that.names();
+        if (o.length > n.length) {
+            return false;
+        }
+        for (int i = 0; i < o.length; i++) {
+            if (!n[i].equals(o[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endsWith(Path other) {
+        if (!(other instanceof MemoryPath) || other.getFileSystem() != fileSystem) {
+            return false;
+        }
+        MemoryPath that = (MemoryPath) other;
+        if (that.isAbsolute()) {
+            return equals(that);
+        }
+        String[] n = names();
+        String[] o = that.names();
+        if (o.length > n.length) {
+            return false;
+        }
+        for (int i = 0; i < o.length; i++) {
+            if (!n[n.length - o.length + i].equals(o[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public MemoryPath normalize() {
+        Deque<String> normalized = new ArrayDeque<>();
+        for (String name : names()) {
+            if (name.equals(".")) {
+                continue;
+            }
+            if (name.equals("..")) {
+                if (!normalized.isEmpty() && !normalized.peekLast().equals("..")) {
+                    normalized.removeLast();
+                    continue;
+                }
+                if (isAbsolute()) {
+                    continue;
+                }
+            }
+            normalized.addLast(name);
+        }
+        return new MemoryPath(fileSystem, (isAbsolute() ? "/" : "")
+            + String.join("/", normalized));
+    }
+
+    @Override
+    public MemoryPath resolve(Path other) {
+        MemoryPath that = check(other);
+        if (that.isAbsolute()) {
+            return that;
+        }
+        if (that.path.isEmpty()) {
+            return this;
+        }
+        if (path.isEmpty()) {
+            return that;
+        }
+        return new MemoryPath(fileSystem, path + "/" + that.path);
+    }
+
+    @Override
+    public MemoryPath relativize(Path other) {
+        MemoryPath that = check(other);
+        if (isAbsolute() != that.isAbsolute()) {
+            throw new IllegalArgumentException("Both paths must be absolute or relative");
+        }
+        String[] n = path.isEmpty() ? NO_NAMES : names();
+        String[] o = that.path.isEmpty() ? NO_NAMES : that.names();
+        int common = 0;
+        while (common < n.length && common < o.length && n[common].equals(o[common])) {
+            common++;
+        }
+        StringBuilder relative = new StringBuilder();
+        for (int i = common; i < n.length; i++) {
+            relative.append(relative.length() == 0 ? "" : "/").append("..");
+        }
+        for (int i = common; i < o.length; i++) {
+            relative.append(relative.length() == 0 ? "" : "/").append(o[i]);
+        }
+        return new MemoryPath(fileSystem, relative.toString());
+    }
+
+    @Override
+    public URI toUri() {
+        try {
+            return new URI(MemoryFileSystemProvider.SCHEME, fileSystem.getName(),
+                toAbsolutePath().path, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public MemoryPath toAbsolutePath() {
+        return isAbsolute() ? this : new MemoryPath(fileSystem, "/" + path);
+    }
+
+    @Override
+    public MemoryPath toRealPath(LinkOption... options) throws IOException {
+        MemoryPath real = toAbsolutePath().normalize();
+        fileSystem.provider().checkAccess(real);
+        return real;
+    }
+
+    @Override
+    public WatchKey register(WatchService watcher, WatchEvent.Kind<?>[] events,
+        WatchEvent.Modifier... modifiers) {
+        throw new UnsupportedOperationException("Watching is not supported");
+    }
+
+    @Override
+    public int compareTo(Path other) {
+        return path.compareTo(check(other).path);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MemoryPath)) {
+            return false;
+        }
+        MemoryPath other = (MemoryPath) o;
+        return fileSystem == other.fileSystem && path.equals(other.path);
+    }
+
+    @Override
+    public int hashCode() {
+        return path.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+
+    String[] names() {
+        String[] n = names;
+        if (n == null) {
+            if (path.equals("/")) {
+                n = NO_NAMES;
+            } else {
+                n = (isAbsolute() ? path.substring(1) : path).split("/", -1);
+            }
+            names = n;
+        }
+        return n;
+    }
+
+    private MemoryPath check(Path other) {
+        if (!(other instanceof MemoryPath)) {
+            throw new ProviderMismatchException();
+        }
+        return (MemoryPath) other;
+    }
+
+    private static String normalizeSeparators(String path) {
+        StringBuilder normalized = new StringBuilder(path.length());
+        char previous = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '\u0000') {
+                throw new InvalidPathException(path, "Nul character not allowed");
+            }
+            if (c != '/' || previous != '/') {
+                normalized.append(c);
+            }
+            previous = c;
+        }
+        int length = normalized.length();
+        if (length > 1 && normalized.charAt(length - 1) == '/') {
+            normalized.setLength(length - 1);
+        }
+        return normalized.toString();
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements of a {@link MicroBenchmark} run: one elapsed time per measurement iteration
+ * and the statistics derived from them.
+ * <p>
+ * The error is the half width of the 99% confidence interval of the mean, using Student's t
+ * distribution for the number of measurement iterations.
+ *
+ * @author tjclancy
+ */
+public class BenchmarkResult {
+    /*
+     * Two sided 99% critical values of Student's t distribution for 1 to 30 degrees of freedom.
+     */
+    private static final double[] T_99 = {
+        63.657, 9.925, 5.841, 4.604, 4.032, 3.707, 3.499, 3.355, 3.250, 3.169,
+        3.106, 3.055, 3.012, 2.977, 2.947, 2.921, 2.898, 2.878, 2.861, 2.845,
+        2.831, 2.819, 2.807, 2.797, 2.787, 2.779, 2.771, 2.763, 2.756, 2.750
+    };
+    private static final double Z_99 = 2.576;
+
+    private final String id;
+    private final long operationsPerIteration;
+    private final long[] iterationTimes;
+
+    public BenchmarkResult(String id, long operationsPerIteration, long[] iterationTimes) {
+        if (iterationTimes.length == 0) {
+            throw new IllegalArgumentException("A benchmark result needs at least one iteration.");
+        }
+        this.id = id;
+        this.operationsPerIteration = operationsPerIteration;
+        this.iterationTimes = iterationTimes.clone();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public long getOperationsPerIteration() {
+        return operationsPerIteration;
+    }
+
+    public int getIterations() {
+        return iterationTimes.length;
+    }
+
+    /**
+     * @return A copy of the elapsed nanoseconds of each measurement iteration.
+     */
+    public long[] getIterationTimes() {
+        return iterationTimes.clone();
+    }
+
+    /**
+     * @return The mean time of one operation in nanoseconds.
+     */
+    public double getNanosPerOp() {
+        double sum = 0.0;
+        for (long time : iterationTimes) {
+            sum += nanosPerOp(time);
+        }
+        return sum / iterationTimes.length;
+    }
+
+    /**
+     * @return The standard deviation of the per iteration ns/op values.
+     */
+    public double getNanosPerOpStdDev() {
+        if (iterationTimes.length < 2) {
+            return 0.0;
+        }
+        double mean = getNanosPerOp();
+        double sumOfSquares = 0.0;
+        for (long time : iterationTimes) {
+            double diff = nanosPerOp(time) - mean;
+            sumOfSquares += diff * diff;
+        }
+        return Math.sqrt(sumOfSquares / (iterationTimes.length - 1));
+    }
+
+    /**
+     * @return The half width of the 99% confidence interval of {@link #getNanosPerOp()}, or NaN
+     *         if there was only one measurement iteration.
+     */
+    public double getNanosPerOpError() {
+        int n = iterationTimes.length;
+        if (n < 2) {
+            return Double.NaN;
+        }
+        return criticalValue(n - 1) * getNanosPerOpStdDev() / Math.sqrt(n);
+    }
+
+    public double getMinNanosPerOp() {
+        return nanosPerOp(Arrays.stream(iterationTimes).min().getAsLong());
+    }
+
+    public double getMaxNanosPerOp() {
+        return nanosPerOp(Arrays.stream(iterationTimes).max().getAsLong());
+    }
+
+    /**
+     * @return The mean throughput in operations per second.
+     */
+    public double getOpsPerSecond() {
+        return TimeUnit.SECONDS.toNanos(1) / getNanosPerOp();
+    }
+
+    /**
+     * @return The error of {@link #getOpsPerSecond()}: the ns/op error scaled by the relative
+     *         change it makes to the throughput.
+     */
+    public double getOpsPerSecondError() {
+        return getOpsPerSecond() * getNanosPerOpError() / getNanosPerOp();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%s: %.3f +/- %.3f ns/op, %.0f +/- %.0f ops/s (99%% CI, %d iterations of %d ops)",
+            id, getNanosPerOp(), getNanosPerOpError(), getOpsPerSecond(), getOpsPerSecondError(),
+            getIterations(), operationsPerIteration);
+    }
+
+    private double nanosPerOp(long iterationTime) {
+        return (double) iterationTime / operationsPerIteration;
+    }
+
+    private static double criticalValue(int degreesOfFreedom) {
+        return degreesOfFreedom <= T_99.length ? T_99[degreesOfFreedom - 1] : Z_99;
+    }
+}
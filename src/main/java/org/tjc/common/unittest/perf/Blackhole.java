@@ -0,0 +1,86 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+/**
+ * Consumes values produced by a benchmarked workload so the JIT can't prove they are unused and
+ * remove the code that computed them.
+ * <p>
+ * Each consume method compares the value against two volatile fields that always hold different
+ * values. The comparison can never be true, but the compiler can't know that, so the value has
+ * to be computed. Objects are published to a volatile field only on a pseudo random, increasingly
+ * rare schedule.
+ *
+ * @author tjclancy
+ */
+public final class Blackhole {
+    private volatile boolean bool1 = false;
+    private volatile boolean bool2 = true;
+    private volatile int int1 = 1;
+    private volatile int int2 = 2;
+    private volatile long long1 = 1L;
+    private volatile long long2 = 2L;
+    private volatile double double1 = 1.0;
+    private volatile double double2 = 2.0;
+    private volatile Object objectSink;
+    private int seed = (int) System.nanoTime();
+    private int mask = 1;
+
+    public Blackhole() {
+    }
+
+    public void consume(boolean b) {
+        if (b == bool1 & b == bool2) {
+            throw new IllegalStateException("Blackhole.consume(boolean) should never get here.");
+        }
+    }
+
+    public void consume(int i) {
+        if (i == int1 & i == int2) {
+            throw new IllegalStateException("Blackhole.consume(int) should never get here.");
+        }
+    }
+
+    public void consume(long l) {
+        if (l == long1 & l == long2) {
+            throw new IllegalStateException("Blackhole.consume(long) should never get here.");
+        }
+    }
+
+    public void consume(double d) {
+        if (d == double1 & d == double2) {
+            throw new IllegalStateException("Blackhole.consume(double) should never get here.");
+        }
+    }
+
+    public void consume(Object o) {
+        int next = seed * 1664525 + 1013904223;
+        seed = next;
+        if ((next & mask) == 0) {
+            objectSink = o;
+            mask = (mask << 1) + 1;
+        }
+    }
+
+}
@@ -0,0 +1,604 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Measures file I/O throughput and latency in a directory, comparing heap buffers and streams,
+ * NIO channels with direct buffers, and memory mapped files for sequential writes, sequential
+ * reads and random reads.
+ * <p>
+ * Each run writes or reads a scratch file of {@link #fileSize(long)} bytes in bufferSize
+ * pieces. Every single read or write call is timed and recorded as a lap of a {@link StopWatch};
+ * the laps of the measured iterations are collected in a {@link LatencyHistogram}. Throughput is
+ * the number of bytes over the whole iteration, including opening, mapping, syncing and closing
+ * the file.
+ * <p>
+ * Reads of a file that was just written are usually served from the page cache, so unless the
+ * file is larger than the free memory the read numbers measure the cache, not the device. Enable
+ * {@link #sync(boolean)} to include flushing writes to the device.
+ *
+ * <pre>
+ * List&lt;IoBenchmarkResult&gt; results = IoBenchmark.create(directory)
+ *     .fileSize(256L * 1024 * 1024)
+ *     .runAll();
+ * writeln(IoBenchmark.report(results));
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public class IoBenchmark {
+    public static final long DEFAULT_FILE_SIZE = 64L * 1024 * 1024;
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    public static final int DEFAULT_RANDOM_READS = 4096;
+    public static final int DEFAULT_WARMUP_ITERATIONS = 1;
+    public static final int DEFAULT_MEASUREMENT_ITERATIONS = 3;
+    public static final int[] DEFAULT_SWEEP_BUFFER_SIZES = {
+        4 * 1024, 16 * 1024, 64 * 1024, 256 * 1024, 1024 * 1024
+    };
+
+    /*
+     * Files are mapped in regions of at most this size, since a single mapping is limited to
+     * Integer.MAX_VALUE bytes.
+     */
+    private static final long MAX_REGION_SIZE = 1L << 30;
+
+    /**
+     * The access pattern of a run.
+     */
+    public enum Operation {
+        SEQUENTIAL_WRITE,
+        SEQUENTIAL_READ,
+        /**
+         * Reads of bufferSize bytes at random positions aligned to bufferSize.
+         */
+        RANDOM_READ
+    }
+
+    /**
+     * The way the file is accessed.
+     */
+    public enum Method {
+        /**
+         * A byte array through an input or output stream; random reads use positional channel
+         * reads into a heap ByteBuffer.
+         */
+        HEAP_STREAM,
+        /**
+         * A FileChannel with a direct ByteBuffer.
+         */
+        DIRECT_CHANNEL,
+        /**
+         * A memory mapped file. Not every file system supports this.
+         */
+        MAPPED
+    }
+
+    private final Path directory;
+    private long fileSize = DEFAULT_FILE_SIZE;
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+    private int randomReads = DEFAULT_RANDOM_READS;
+    private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+    private int measurementIterations = DEFAULT_MEASUREMENT_ITERATIONS;
+    private boolean sync;
+    private long seed;
+
+    public IoBenchmark(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Creates a benchmark that measures the file system that holds a directory. Its scratch file
+     * is created in the directory and deleted after each run.
+     *
+     * @param directory The directory.
+     *
+     * @return The benchmark.
+     */
+    public static IoBenchmark create(Path directory) {
+        return new IoBenchmark(directory);
+    }
+
+    public IoBenchmark fileSize(long fileSize) {
+        if (fileSize < 1) {
+            throw new IllegalArgumentException("fileSize must be positive: " + fileSize);
+        }
+        this.fileSize = fileSize;
+        return this;
+    }
+
+    public IoBenchmark bufferSize(int bufferSize) {
+        checkBufferSize(bufferSize);
+        this.bufferSize = bufferSize;
+        return this;
+    }
+
+    public IoBenchmark randomReads(int randomReads) {
+        if (randomReads < 1) {
+            throw new IllegalArgumentException("randomReads must be positive: " + randomReads);
+        }
+        this.randomReads = randomReads;
+        return this;
+    }
+
+    public IoBenchmark warmupIterations(int warmupIterations) {
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException(
+                "warmupIterations must not be negative: " + warmupIterations);
+        }
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    public IoBenchmark measurementIterations(int measurementIterations) {
+        if (measurementIterations < 1) {
+            throw new IllegalArgumentException(
+                "measurementIterations must be positive: " + measurementIterations);
+        }
+        this.measurementIterations = measurementIterations;
+        return this;
+    }
+
+    /**
+     * @param sync True to force written data to the device before a write iteration ends.
+     *
+     * @return This benchmark.
+     */
+    public IoBenchmark sync(boolean sync) {
+        this.sync = sync;
+        return this;
+    }
+
+    /**
+     * @param seed The seed of the written bytes and the random read positions.
+     *
+     * @return This benchmark.
+     */
+    public IoBenchmark seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    public int getRandomReads() {
+        return randomReads;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getMeasurementIterations() {
+        return measurementIterations;
+    }
+
+    public boolean isSync() {
+        return sync;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Measures one operation with one method.
+     *
+     * @param operation The access pattern.
+     * @param method    The way the file is accessed.
+     *
+     * @return The measurements.
+     *
+     * @throws IOException                   If the scratch file can't be written or read.
+     * @throws UnsupportedOperationException If the method is MAPPED and the file system can't map
+     *                                       files.
+     */
+    public IoBenchmarkResult run(Operation operation, Method method) throws IOException {
+        Path file = createScratchFile();
+        try {
+            return measure(file, operation, method, bufferSize);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Measures every operation with every method. Methods the file system doesn't support are
+     * left out.
+     *
+     * @return The measurements, ordered by operation and then method.
+     *
+     * @throws IOException If the scratch file can't be written or read.
+     */
+    public List<IoBenchmarkResult> runAll() throws IOException {
+        List<IoBenchmarkResult> results = new ArrayList<>();
+        Path file = createScratchFile();
+        try {
+            for (Operation operation : Operation.values()) {
+                for (Method method : Method.values()) {
+                    try {
+                        results.add(measure(file, operation, method, bufferSize));
+                    } catch (UnsupportedOperationException e) {
+                        // The file system can't map files.
+                    }
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return results;
+    }
+
+    /**
+     * Measures one operation with one method for each of the default sweep buffer sizes.
+     *
+     * @param operation The access pattern.
+     * @param method    The way the file is accessed.
+     *
+     * @return The measurements, one per buffer size.
+     *
+     * @throws IOException If the scratch file can't be written or read.
+     */
+    public List<IoBenchmarkResult> sweep(Operation operation, Method method) throws IOException {
+        return sweep(operation, method, DEFAULT_SWEEP_BUFFER_SIZES);
+    }
+
+    /**
+     * Measures one operation with one method for each of several buffer sizes.
+     *
+     * @param operation   The access pattern.
+     * @param method      The way the file is accessed.
+     * @param bufferSizes The buffer sizes.
+     *
+     * @return The measurements, one per buffer size.
+     *
+     * @throws IOException If the scratch file can't be written or read.
+     */
+    public List<IoBenchmarkResult> sweep(Operation operation, Method method, int... bufferSizes)
+        throws IOException {
+        for (int size : bufferSizes) {
+            checkBufferSize(size);
+        }
+        List<IoBenchmarkResult> results = new ArrayList<>();
+        Path file = createScratchFile();
+        try {
+            for (int size : bufferSizes) {
+                results.add(measure(file, operation, method, size));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+        return results;
+    }
+
+    /**
+     * Formats results as a table, one line per result.
+     *
+     * @param results The results.
+     *
+     * @return The table.
+     */
+    public static String report(List<IoBenchmarkResult> results) {
+        StringBuilder sb = new StringBuilder();
+        for (IoBenchmarkResult result : results) {
+            sb.append(result).append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    static String formatSize(long bytes) {
+        if (bytes >= 1024 * 1024 && bytes % (1024 * 1024) == 0) {
+            return bytes / (1024 * 1024) + " MB";
+        }
+        if (bytes >= 1024 && bytes % 1024 == 0) {
+            return bytes / 1024 + " KB";
+        }
+        return bytes + " B";
+    }
+
+    private Path createScratchFile() throws IOException {
+        return Files.createTempFile(directory, "io-benchmark", ".dat");
+    }
+
+    private IoBenchmarkResult measure(Path file, Operation operation, Method method, int size)
+        throws IOException {
+        if (operation == Operation.RANDOM_READ && size > fileSize) {
+            throw new IllegalArgumentException(String.format(
+                "The buffer size %d is larger than the file size %d.", size, fileSize));
+        }
+        byte[] data = new byte[size];
+        new SplittableRandom(seed).nextBytes(data);
+        if (operation != Operation.SEQUENTIAL_WRITE && Files.size(file) != fileSize) {
+            writeChannel(file, data, null);
+        }
+        long[] positions = operation == Operation.RANDOM_READ ? randomPositions(size) : null;
+        int operations = positions != null ? positions.length
+            : (int) ((fileSize + size - 1) / size);
+        Blackhole blackhole = new Blackhole();
+        for (int i = 0; i < warmupIterations; i++) {
+            StopWatch sw = StopWatch.createWithLaps(operation.name(), operations);
+            runIteration(file, operation, method, data, positions, sw, blackhole);
+        }
+        LatencyHistogram latencies = new LatencyHistogram();
+        long bytes = 0;
+        long elapsedNanos = 0;
+        for (int i = 0; i < measurementIterations; i++) {
+            StopWatch sw = StopWatch.createWithLaps(operation.name(), operations);
+            bytes += runIteration(file, operation, method, data, positions, sw, blackhole);
+            elapsedNanos += sw.elapsedTime();
+            latencies.recordLaps(sw);
+        }
+        return new IoBenchmarkResult(operation, method, size, bytes, elapsedNanos, latencies);
+    }
+
+    private long[] randomPositions(int size) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long blocks = fileSize / size;
+        long[] positions = new long[randomReads];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = random.nextLong(blocks) * size;
+        }
+        return positions;
+    }
+
+    /*
+     * Runs one iteration, timing the whole of it with the stop watch and recording each read or
+     * write call as a lap. Returns the number of bytes read or written.
+     */
+    private long runIteration(Path file, Operation operation, Method method, byte[] data,
+        long[] positions, StopWatch sw, Blackhole blackhole) throws IOException {
+        sw.start();
+        long bytes;
+        switch (operation) {
+            case SEQUENTIAL_WRITE:
+                bytes = method == Method.HEAP_STREAM ? writeStream(file, data, sw)
+                    : method == Method.DIRECT_CHANNEL ? writeChannel(file, data, sw)
+                    : writeMapped(file, data, sw);
+                break;
+            case SEQUENTIAL_READ:
+                bytes = method == Method.HEAP_STREAM ? readStream(file, data, sw, blackhole)
+                    : method == Method.DIRECT_CHANNEL
+                    ? readChannel(file, ByteBuffer.allocateDirect(data.length), sw, blackhole)
+                    : readMapped(file, data, null, sw, blackhole);
+                break;
+            default:
+                bytes = method == Method.HEAP_STREAM
+                    ? readChannel(file, ByteBuffer.wrap(data), positions, sw, blackhole)
+                    : method == Method.DIRECT_CHANNEL
+                    ? readChannel(file, ByteBuffer.allocateDirect(data.length), positions, sw,
+                        blackhole)
+                    : readMapped(file, data, positions, sw, blackhole);
+                break;
+        }
+        sw.stop();
+        return bytes;
+    }
+
+    private long writeStream(Path file, byte[] data, StopWatch sw) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING);
+            OutputStream out = Channels.newOutputStream(channel)) {
+            for (long position = 0; position < fileSize; position += data.length) {
+                int length = (int) Math.min(data.length, fileSize - position);
+                long start = System.nanoTime();
+                out.write(data, 0, length);
+                sw.recordLap(System.nanoTime() - start);
+            }
+            out.flush();
+            if (sync) {
+                channel.force(false);
+            }
+        }
+        return fileSize;
+    }
+
+    /*
+     * Also writes the file read by the read operations, in which case the stop watch is null.
+     */
+    private long writeChannel(Path file, byte[] data, StopWatch sw) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(data.length);
+        buffer.put(data);
+        try (FileChannel channel = FileChannel.open(file, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            for (long position = 0; position < fileSize; position += data.length) {
+                buffer.clear();
+                buffer.limit((int) Math.min(data.length, fileSize - position));
+                long start = System.nanoTime();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (sw != null) {
+                    sw.recordLap(System.nanoTime() - start);
+                }
+            }
+            if (sync && sw != null) {
+                channel.force(false);
+            }
+        }
+        return fileSize;
+    }
+
+    private long writeMapped(Path file, byte[] data, StopWatch sw) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ, WRITE, CREATE,
+            TRUNCATE_EXISTING)) {
+            for (long regionStart = 0; regionStart < fileSize; regionStart += MAX_REGION_SIZE) {
+                int regionSize = (int) Math.min(MAX_REGION_SIZE, fileSize - regionStart);
+                MappedByteBuffer region = channel.map(MapMode.READ_WRITE, regionStart,
+                    regionSize);
+                while (region.hasRemaining()) {
+                    int length = Math.min(data.length, region.remaining());
+                    long start = System.nanoTime();
+                    region.put(data, 0, length);
+                    sw.recordLap(System.nanoTime() - start);
+                }
+                if (sync) {
+                    region.force();
+                }
+            }
+        }
+        return fileSize;
+    }
+
+    private long readStream(Path file, byte[] data, StopWatch sw, Blackhole blackhole)
+        throws IOException {
+        long bytes = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            while (true) {
+                long start = System.nanoTime();
+                int read = in.readNBytes(data, 0, data.length);
+                if (read <= 0) {
+                    break;
+                }
+                sw.recordLap(System.nanoTime() - start);
+                blackhole.consume(data[read - 1]);
+                bytes += read;
+            }
+        }
+        return bytes;
+    }
+
+    private long readChannel(Path file, ByteBuffer buffer, StopWatch sw, Blackhole blackhole)
+        throws IOException {
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            while (true) {
+                buffer.clear();
+                long start = System.nanoTime();
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Fill the buffer like the stream does.
+                }
+                if (buffer.position() == 0) {
+                    break;
+                }
+                sw.recordLap(System.nanoTime() - start);
+                blackhole.consume(buffer.get(buffer.position() - 1));
+                bytes += buffer.position();
+            }
+        }
+        return bytes;
+    }
+
+    private long readChannel(Path file, ByteBuffer buffer, long[] positions, StopWatch sw,
+        Blackhole blackhole) throws IOException {
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            for (long position : positions) {
+                buffer.clear();
+                long start = System.nanoTime();
+                while (buffer.hasRemaining()
+                    && channel.read(buffer, position + buffer.position()) >= 0) {
+                    // Positional reads may return fewer bytes than asked for.
+                }
+                sw.recordLap(System.nanoTime() - start);
+                blackhole.consume(buffer.get(buffer.position() - 1));
+                bytes += buffer.position();
+            }
+        }
+        return bytes;
+    }
+
+    /*
+     * Reads the whole file in order if positions is null, otherwise bufferSize bytes at each
+     * position.
+     */
+    private long readMapped(Path file, byte[] data, long[] positions, StopWatch sw,
+        Blackhole blackhole) throws IOException {
+        long bytes = 0;
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            long size = channel.size();
+            MappedByteBuffer[] regions = new MappedByteBuffer[
+                (int) ((size + MAX_REGION_SIZE - 1) / MAX_REGION_SIZE)];
+            for (int i = 0; i < regions.length; i++) {
+                long regionStart = i * MAX_REGION_SIZE;
+                regions[i] = channel.map(MapMode.READ_ONLY, regionStart,
+                    Math.min(MAX_REGION_SIZE, size - regionStart));
+            }
+            if (positions == null) {
+                for (long position = 0; position < size; position += data.length) {
+                    int length = (int) Math.min(data.length, size - position);
+                    long start = System.nanoTime();
+                    get(regions, position, data, length);
+                    sw.recordLap(System.nanoTime() - start);
+                    blackhole.consume(data[length - 1]);
+                    bytes += length;
+                }
+            } else {
+                for (long position : positions) {
+                    long start = System.nanoTime();
+                    get(regions, position, data, data.length);
+                    sw.recordLap(System.nanoTime() - start);
+                    blackhole.consume(data[data.length - 1]);
+                    bytes += data.length;
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /*
+     * Copies bytes out of the mapped regions, crossing into the next region if necessary.
+     */
+    private static void get(MappedByteBuffer[] regions, long position, byte[] data, int length) {
+        int copied = 0;
+        while (copied < length) {
+            MappedByteBuffer region = regions[(int) ((position + copied) / MAX_REGION_SIZE)];
+            int offset = (int) ((position + copied) % MAX_REGION_SIZE);
+            int count = Math.min(length - copied, region.limit() - offset);
+            region.position(offset);
+            region.get(data, copied, count);
+            copied += count;
+        }
+    }
+
+    private static void checkBufferSize(int bufferSize) {
+        if (bufferSize < 1) {
+            throw new IllegalArgumentException("bufferSize must be positive: " + bufferSize);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The measurements of one {@link IoBenchmark} run: the bytes moved, the time it took and the
+ * latency of each individual read or write call.
+ *
+ * @author tjclancy
+ */
+public class IoBenchmarkResult {
+    private static final double BYTES_PER_MEGABYTE = 1024.0 * 1024.0;
+    private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final IoBenchmark.Operation operation;
+    private final IoBenchmark.Method method;
+    private final int bufferSize;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final LatencyHistogram latencies;
+
+    public IoBenchmarkResult(IoBenchmark.Operation operation, IoBenchmark.Method method,
+        int bufferSize, long bytes, long elapsedNanos, LatencyHistogram latencies) {
+        this.operation = operation;
+        this.method = method;
+        this.bufferSize = bufferSize;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.latencies = latencies.copy();
+    }
+
+    public IoBenchmark.Operation getOperation() {
+        return operation;
+    }
+
+    public IoBenchmark.Method getMethod() {
+        return method;
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * @return The number of bytes read or written over all measured iterations.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return The number of read or write calls that were measured.
+     */
+    public long getOperationCount() {
+        return latencies.getTotalCount();
+    }
+
+    public double getMegabytesPerSecond() {
+        return elapsedNanos == 0 ? 0.0
+            : bytes / BYTES_PER_MEGABYTE / (elapsedNanos / NANOS_PER_SECOND);
+    }
+
+    /**
+     * @param percentile The percentile, between 0.0 and 100.0.
+     *
+     * @return The latency of a single read or write call at the percentile, in nanoseconds.
+     */
+    public long getLatencyPercentile(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    /**
+     * @return A copy of the histogram of the latencies of the single read or write calls.
+     */
+    public LatencyHistogram getLatencies() {
+        return latencies.copy();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+            "%-16s %-14s %8s: %10.1f MB/s, p50: %8.1fus, p99: %8.1fus, max: %8.1fus (%d ops)",
+            operation, method, IoBenchmark.formatSize(bufferSize), getMegabytesPerSecond(),
+            micros(getLatencyPercentile(50.0)), micros(getLatencyPercentile(99.0)),
+            micros(latencies.getMax()), getOperationCount());
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1000.0;
+    }
+}
@@ -0,0 +1,350 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A fixed size histogram for recording latencies in nanoseconds.
+ * <p>
+ * Values are counted in log-linear buckets: every power of two range is split into enough linear
+ * sub buckets to keep the requested number of significant decimal digits. The memory used depends
+ * only on the trackable range and the precision, never on the number of recorded values, and
+ * {@link #record(long)} is a couple of shifts and an array increment.
+ * <p>
+ * Values larger than the highest trackable value are counted in the last bucket; the exact
+ * maximum is still reported by {@link #getMax()}. Instances are not thread safe.
+ *
+ * @author tjclancy
+ */
+public class LatencyHistogram {
+    public static final long DEFAULT_HIGHEST_TRACKABLE_VALUE = TimeUnit.MINUTES.toNanos(10);
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 3;
+
+    private static final double[] SUMMARY_PERCENTILES = {50.0, 90.0, 99.0, 99.9, 99.99};
+
+    private final long highestTrackableValue;
+    private final int significantDigits;
+    private final int subBucketCountMagnitude;
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final long[] counts;
+    private long totalCount;
+    private long totalValue;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    public LatencyHistogram() {
+        this(DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a histogram that tracks values from 0 to highestTrackableValue.
+     *
+     * @param highestTrackableValue The highest value that is tracked with full precision.
+     * @param significantDigits     The number of significant decimal digits to keep (0 - 5).
+     */
+    public LatencyHistogram(long highestTrackableValue, int significantDigits) {
+        if (highestTrackableValue < 2) {
+            throw new IllegalArgumentException(
+                "highestTrackableValue must be >= 2: " + highestTrackableValue);
+        }
+        if (significantDigits < 0 || significantDigits > 5) {
+            throw new IllegalArgumentException(
+                "significantDigits must be between 0 and 5: " + significantDigits);
+        }
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+
+        long largestValueWithSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        this.subBucketCountMagnitude = Math.max(1,
+            64 - Long.numberOfLeadingZeros(largestValueWithSingleUnitResolution - 1));
+        this.subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        this.subBucketHalfCount = subBucketCount / 2;
+        this.subBucketMask = subBucketCount - 1;
+        this.counts = new long[(bucketsNeeded(highestTrackableValue, subBucketCount) + 1)
+            * subBucketHalfCount];
+    }
+
+    /**
+     * Records a single value.
+     *
+     * @param nanos The value, usually a latency in nanoseconds.
+     */
+    public void record(long nanos) {
+        record(nanos, 1);
+    }
+
+    /**
+     * Records a value count times.
+     *
+     * @param nanos The value, usually a latency in nanoseconds.
+     * @param count The number of times the value occurred.
+     */
+    public void record(long nanos, long count) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Can't record a negative value: " + nanos);
+        }
+        counts[Math.min(countsIndex(nanos), counts.length - 1)] += count;
+        totalCount += count;
+        totalValue += nanos * count;
+        min = Math.min(min, nanos);
+        max = Math.max(max, nanos);
+    }
+
+    /**
+     * Records the laps of a stop watch.
+     *
+     * @param sw The stop watch.
+     */
+    public void recordLaps(StopWatch sw) {
+        for (int i = 0; i < sw.getLapCount(); i++) {
+            record(sw.getLap(i));
+        }
+    }
+
+    /**
+     * Adds the counts of another histogram to this one. Both histograms must have been created
+     * with the same range and precision.
+     *
+     * @param other The histogram to merge into this one.
+     */
+    public void add(LatencyHistogram other) {
+        if (other.highestTrackableValue != highestTrackableValue
+            || other.significantDigits != significantDigits) {
+            throw new IllegalArgumentException(String.format(
+                "Can't merge histograms with different layouts: (%d, %d) vs (%d, %d)",
+                highestTrackableValue, significantDigits,
+                other.highestTrackableValue, other.significantDigits));
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        totalCount += other.totalCount;
+        totalValue += other.totalValue;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * @return A new histogram with the same layout and counts as this one.
+     */
+    public LatencyHistogram copy() {
+        LatencyHistogram copy = new LatencyHistogram(highestTrackableValue, significantDigits);
+        copy.add(this);
+        return copy;
+    }
+
+    public void reset() {
+        Arrays.fill(counts, 0L);
+        totalCount = totalValue = max = 0L;
+        min = Long.MAX_VALUE;
+    }
+
+    /**
+     * Returns the value at the given percentile. The returned value is the highest value that is
+     * equivalent, within the histogram's precision, to the value at that rank.
+     *
+     * @param percentile A percentile between 0 and 100.
+     *
+     * @return The value at the percentile, or 0 if nothing has been recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException(
+                "percentile must be between 0 and 100: " + percentile);
+        }
+        if (totalCount == 0) {
+            return 0L;
+        }
+        long countAtPercentile = Math.max(1L, (long) Math.ceil(percentile / 100.0 * totalCount));
+        long runningCount = 0;
+        for (int i = 0; i < counts.length; i++) {
+            runningCount += counts[i];
+            if (runningCount >= countAtPercentile) {
+                return Math.max(min, Math.min(max, highestEquivalentValue(valueFromIndex(i))));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Returns the cumulative distribution at a value: the percentage of recorded values that are
+     * less than or equal to it (within the histogram's precision).
+     *
+     * @param value The value.
+     *
+     * @return A percentage between 0 and 100.
+     */
+    public double getPercentileAtOrBelowValue(long value) {
+        if (totalCount == 0) {
+            return 100.0;
+        }
+        int targetIndex = Math.min(countsIndex(Math.max(value, 0L)), counts.length - 1);
+        long countAtOrBelow = 0;
+        for (int i = 0; i <= targetIndex; i++) {
+            countAtOrBelow += counts[i];
+        }
+        return 100.0 * countAtOrBelow / totalCount;
+    }
+
+    /**
+     * Returns the number of recorded values that fall into the same bucket as value.
+     *
+     * @param value The value.
+     *
+     * @return The count.
+     */
+    public long getCountAtValue(long value) {
+        return counts[Math.min(countsIndex(value), counts.length - 1)];
+    }
+
+    public long getTotalCount() {
+        return totalCount;
+    }
+
+    public long getMin() {
+        return totalCount == 0 ? 0L : min;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return totalCount == 0 ? 0.0 : (double) totalValue / totalCount;
+    }
+
+    public long getHighestTrackableValue() {
+        return highestTrackableValue;
+    }
+
+    public int getSignificantDigits() {
+        return significantDigits;
+    }
+
+    /**
+     * @return The number of counters backing this histogram.
+     */
+    public int getBucketCount() {
+        return counts.length;
+    }
+
+    /**
+     * Returns a short, multi-line summary containing the count, min, mean, max and the common
+     * percentiles (p50, p90, p99, p99.9, p99.99) in the given time unit.
+     *
+     * @param timeUnit The unit to display values in.
+     *
+     * @return The summary.
+     */
+    public String summary(TimeUnit timeUnit) {
+        StringBuilder sb = new StringBuilder();
+        String unit = unitName(timeUnit);
+        sb.append(String.format("count : %d%n", totalCount));
+        sb.append(String.format("min   : %s %s%n", format(getMin(), timeUnit), unit));
+        sb.append(String.format("mean  : %s %s%n", format(getMean(), timeUnit), unit));
+        sb.append(String.format("max   : %s %s%n", format(getMax(), timeUnit), unit));
+        for (double percentile : SUMMARY_PERCENTILES) {
+            sb.append(String.format("p%-5s: %s %s%n", trimPercentile(percentile),
+                format(getValueAtPercentile(percentile), timeUnit), unit));
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count: %d, min: %dns, mean: %.1fns, p50: %dns, p99: %dns, max: %dns",
+            totalCount, getMin(), getMean(), getValueAtPercentile(50.0),
+            getValueAtPercentile(99.0), getMax());
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros(value | subBucketMask)
+            - subBucketCountMagnitude;
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        return ((bucketIndex + 1) << subBucketHalfCountMagnitude) + subBucketIndex
+            - subBucketHalfCount;
+    }
+
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return (long) subBucketIndex << bucketIndex;
+    }
+
+    private long highestEquivalentValue(long value) {
+        int bucketIndex = 64 - Long.numberOfLeadingZeros(value | subBucketMask)
+            - subBucketCountMagnitude;
+        return value + (1L << bucketIndex) - 1;
+    }
+
+    private static int bucketsNeeded(long highestTrackableValue, int subBucketCount) {
+        long smallestUntrackableValue = subBucketCount;
+        int bucketsNeeded = 1;
+        while (smallestUntrackableValue <= highestTrackableValue) {
+            if (smallestUntrackableValue > (Long.MAX_VALUE / 2)) {
+                return bucketsNeeded + 1;
+            }
+            smallestUntrackableValue <<= 1;
+            bucketsNeeded++;
+        }
+        return bucketsNeeded;
+    }
+
+    private static String format(double nanos, TimeUnit timeUnit) {
+        if (timeUnit == TimeUnit.NANOSECONDS) {
+            return String.format("%.0f", nanos);
+        }
+        return String.format("%.3f", nanos / TimeUnit.NANOSECONDS.convert(1, timeUnit));
+    }
+
+    private static String trimPercentile(double percentile) {
+        return percentile == Math.rint(percentile) ? Long.toString((long) percentile)
+            : Double.toString(percentile);
+    }
+
+    private static String unitName(TimeUnit timeUnit) {
+        switch (timeUnit) {
+            case NANOSECONDS:
+                return "ns";
+            case MICROSECONDS:
+                return "us";
+            case MILLISECONDS:
+                return "ms";
+            case SECONDS:
+                return "s";
+            default:
+                return timeUnit.name().toLowerCase();
+        }
+    }
+
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.function.Supplier;
+
+/**
+ * A small benchmark runner for timing a workload from a unit test.
+ * <p>
+ * The workload is run for a number of warmup iterations, so the JIT has compiled it before
+ * anything is measured, and then for a number of measurement iterations timed as laps of a
+ * {@link StopWatch}. Every value returned by the workload is handed to a {@link Blackhole}, so the
+ * JIT can't eliminate the work as dead code.
+ *
+ * <pre>
+ *    BenchmarkResult result = MicroBenchmark.create("parse")
+ *        .warmupIterations(5)
+ *        .measurementIterations(10)
+ *        .operationsPerIteration(100_000)
+ *        .run(() -&gt; Integer.parseInt("12345"));
+ *    showBenchmarkResult(result);
+ * </pre>
+ * <p>
+ * This is no substitute for JMH when exact numbers matter: every workload shares the same loop, so
+ * the JIT may profile it differently than the code under test is used in production.
+ *
+ * @author tjclancy
+ */
+public class MicroBenchmark {
+    public static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    public static final int DEFAULT_MEASUREMENT_ITERATIONS = 10;
+    public static final int DEFAULT_OPERATIONS_PER_ITERATION = 10_000;
+
+    private final String id;
+    private int warmupIterations = DEFAULT_WARMUP_ITERATIONS;
+    private int measurementIterations = DEFAULT_MEASUREMENT_ITERATIONS;
+    private int operationsPerIteration = DEFAULT_OPERATIONS_PER_ITERATION;
+
+    public MicroBenchmark(String id) {
+        this.id = id;
+    }
+
+    public static MicroBenchmark create(String id) {
+        return new MicroBenchmark(id);
+    }
+
+    public MicroBenchmark warmupIterations(int warmupIterations) {
+        if (warmupIterations < 0) {
+            throw new IllegalArgumentException(
+                "warmupIterations must not be negative: " + warmupIterations);
+        }
+        this.warmupIterations = warmupIterations;
+        return this;
+    }
+
+    public MicroBenchmark measurementIterations(int measurementIterations) {
+        if (measurementIterations < 1) {
+            throw new IllegalArgumentException(
+                "measurementIterations must be positive: " + measurementIterations);
+        }
+        this.measurementIterations = measurementIterations;
+        return this;
+    }
+
+    public MicroBenchmark operationsPerIteration(int operationsPerIteration) {
+        if (operationsPerIteration < 1) {
+            throw new IllegalArgumentException(
+                "operationsPerIteration must be positive: " + operationsPerIteration);
+        }
+        this.operationsPerIteration = operationsPerIteration;
+        return this;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public int getWarmupIterations() {
+        return warmupIterations;
+    }
+
+    public int getMeasurementIterations() {
+        return measurementIterations;
+    }
+
+    public int getOperationsPerIteration() {
+        return operationsPerIteration;
+    }
+
+    /**
+     * Benchmarks a workload that returns a value. The value is consumed by a blackhole.
+     *
+     * @param workload The operation to benchmark.
+     *
+     * @return The measurements.
+     */
+    public BenchmarkResult run(Supplier<?> workload) {
+        return run(blackhole -> blackhole.consume(workload.get()));
+    }
+
+    /**
+     * Benchmarks a workload that consumes its own results through the supplied blackhole.
+     *
+     * @param workload The operation to benchmark.
+     *
+     * @return The measurements.
+     */
+    public BenchmarkResult run(Workload workload) {
+        Blackhole blackhole = new Blackhole();
+        for (int i = 0; i < warmupIterations; i++) {
+            runIteration(workload, blackhole);
+        }
+        StopWatch sw = StopWatch.createWithLaps(id, measurementIterations);
+        sw.start();
+        for (int i = 0; i < measurementIterations; i++) {
+            runIteration(workload, blackhole);
+            sw.lap();
+        }
+        sw.stop();
+        return new BenchmarkResult(id, operationsPerIteration, sw.getLaps());
+    }
+
+    private void runIteration(Workload workload, Blackhole blackhole) {
+        for (int op = 0; op < operationsPerIteration; op++) {
+            workload.run(blackhole);
+        }
+    }
+
+    /**
+     * A benchmarked operation.
+     */
+    @FunctionalInterface
+    public interface Workload {
+
+        void run(Blackhole blackhole);
+    }
+}
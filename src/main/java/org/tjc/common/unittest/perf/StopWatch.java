@@ -23,28 +23,60 @@
  */
 package org.tjc.common.unittest.perf;
 
+import java.util.Arrays;
 import java.util.concurrent.TimeUnit;
 
 /**
  * A simple, not very intelligent, stop watch class used for timing methods calls.
+ * <p>
+ * While running, the stop watch can also record laps. Each call to {@link #lap()} stores the
+ * nanoseconds elapsed since the previous lap (or since the watch was started) in a growable
+ * {@code long[]}, so timing every iteration of a loop does not allocate anything once the lap
+ * array is big enough.
+ * <p>
+ * Instances are not thread safe. To aggregate timings from many threads record them in a
+ * {@link StopWatchRegistry}.
  *
  * @author tjclancy
  */
 public class StopWatch {
     private static final String DEFAULT_ID = "<no_id>";
+    private static final int DEFAULT_LAP_CAPACITY = 1024;
+    private static final long[] NO_LAPS = new long[0];
     private final String id;
     private long timeStarted;
     private long timeStopped;
     private boolean running;
+    private long lastLap;
+    private long[] laps;
+    private int lapCount;
 
     public StopWatch() {
-        this.running = false;
-        this.id = DEFAULT_ID;
+        this(DEFAULT_ID, 0);
     }
 
+    /**
+     * Creates a stop watch. The lap storage is only allocated when the first lap is recorded.
+     *
+     * @param id The stop watch id.
+     */
     public StopWatch(String id) {
+        this(id, 0);
+    }
+
+    /**
+     * Creates a stop watch whose lap storage is preallocated to hold lapCapacity laps.
+     *
+     * @param id          The stop watch id.
+     * @param lapCapacity The number of laps that can be recorded before the lap array grows.
+     */
+    public StopWatch(String id, int lapCapacity) {
+        if (lapCapacity < 0) {
+            throw new IllegalArgumentException("lapCapacity must not be negative: " + lapCapacity);
+        }
         this.running = false;
         this.id = id;
+        this.laps = lapCapacity == 0 ? NO_LAPS : new long[lapCapacity];
     }
 
     public static StopWatch create() {
@@ -67,6 +99,10 @@ public class StopWatch {
         return sw;
     }
 
+    public static StopWatch createWithLaps(String id, int lapCapacity) {
+        return new StopWatch(id, lapCapacity);
+    }
+
     public String getId() {
         return id;
     }
@@ -77,6 +113,7 @@ public class StopWatch {
         }
         this.running = true;
         this.timeStarted = System.nanoTime();
+        this.lastLap = timeStarted;
     }
 
     public void stop() {
@@ -89,7 +126,145 @@ public class StopWatch {
 
     public void reset() {
         running = false;
-        timeStarted = timeStopped = 0L;
+        timeStarted = timeStopped = lastLap = 0L;
+        lapCount = 0;
+    }
+
+    /**
+     * Records a lap: the time elapsed since the previous lap, or since the stop watch was started
+     * if this is the first lap.
+     *
+     * @return The lap time in nanoseconds.
+     */
+    public long lap() {
+        if (!running) {
+            throw new IllegalStateException("The stop watch is not running.");
+        }
+        long now = System.nanoTime();
+        long lapTime = now - lastLap;
+        lastLap = now;
+        addLap(lapTime);
+        return lapTime;
+    }
+
+    /**
+     * Returns the time elapsed since the stop watch was started without stopping it or recording
+     * a lap.
+     *
+     * @return The split time in nanoseconds.
+     */
+    public long split() {
+        if (!running) {
+            throw new IllegalStateException("The stop watch is not running.");
+        }
+        return System.nanoTime() - timeStarted;
+    }
+
+    /**
+     * Records a lap time that was measured elsewhere, e.g. a nanoTime delta taken inside a
+     * workload.
+     *
+     * @param nanos The lap time in nanoseconds.
+     */
+    public void recordLap(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("A lap time can't be negative: " + nanos);
+        }
+        addLap(nanos);
+    }
+
+    /**
+     * Clears the recorded laps, keeping the lap array for reuse.
+     */
+    public void clearLaps() {
+        lapCount = 0;
+        lastLap = running ? System.nanoTime() : 0L;
+    }
+
+    public int getLapCount() {
+        return lapCount;
+    }
+
+    public long getLap(int index) {
+        if (index < 0 || index >= lapCount) {
+            throw new IndexOutOfBoundsException(
+                String.format("Lap index: %d, lap count: %d", index, lapCount));
+        }
+        return laps[index];
+    }
+
+    /**
+     * @return A copy of the recorded lap times in nanoseconds, in the order they were recorded.
+     */
+    public long[] getLaps() {
+        return Arrays.copyOf(laps, lapCount);
+    }
+
+    public long getMinLap() {
+        checkHasLaps();
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < lapCount; i++) {
+            min = Math.min(min, laps[i]);
+        }
+        return min;
+    }
+
+    public long getMaxLap() {
+        checkHasLaps();
+        long max = Long.MIN_VALUE;
+        for (int i = 0; i < lapCount; i++) {
+            max = Math.max(max, laps[i]);
+        }
+        return max;
+    }
+
+    public long getTotalLapTime() {
+        long total = 0L;
+        for (int i = 0; i < lapCount; i++) {
+            total += laps[i];
+        }
+        return total;
+    }
+
+    public double getMeanLap() {
+        checkHasLaps();
+        return (double) getTotalLapTime() / lapCount;
+    }
+
+    /**
+     * Returns the lap time at the given percentile using the nearest rank method. The laps are
+     * sorted in a copy, so this should be called after the timed loop, not inside it.
+     *
+     * @param percentile A percentile between 0 and 100 (e.g. 50.0, 99.0, 99.9).
+     *
+     * @return The lap time in nanoseconds.
+     */
+    public long getLapPercentile(double percentile) {
+        return getLapPercentiles(percentile)[0];
+    }
+
+    /**
+     * Returns the lap times at several percentiles, sorting the laps only once.
+     *
+     * @param percentiles Percentiles between 0 and 100.
+     *
+     * @return The lap times in nanoseconds, one per requested percentile.
+     */
+    public long[] getLapPercentiles(double... percentiles) {
+        checkHasLaps();
+        long[] sorted = getLaps();
+        Arrays.sort(sorted);
+        long[] values = new long[percentiles.length];
+        for (int i = 0; i < percentiles.length; i++) {
+            double percentile = percentiles[i];
+            if (percentile < 0.0 || percentile > 100.0) {
+                throw new IllegalArgumentException(
+                    "percentile must be between 0 and 100: " + percentile);
+            }
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+            values[i] = sorted[Math.max(rank - 1, 0)];
+        }
+        return values;
     }
 
     public long elapsedTime() {
@@ -157,6 +332,19 @@ public class StopWatch {
             elapsedTime());
     }
 
+    private void addLap(long lapTime) {
+        if (lapCount == laps.length) {
+            laps = Arrays.copyOf(laps, Math.max(DEFAULT_LAP_CAPACITY, laps.length * 2));
+        }
+        laps[lapCount++] = lapTime;
+    }
+
+    private void checkHasLaps() {
+        if (lapCount == 0) {
+            throw new IllegalStateException("No laps have been recorded.");
+        }
+    }
+
     private static long convert(long time, TimeUnit timeUnit) {
         return timeUnit.convert(time, TimeUnit.NANOSECONDS);
     }
@@ -0,0 +1,259 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A registry of named timers that many threads can record durations into at the same time.
+ * <p>
+ * Counts and totals are kept in {@link LongAdder}s and the maximum in a {@link LongAccumulator},
+ * so concurrent writers update striped cells instead of contending on one counter. Every thread
+ * also records into its own {@link LatencyHistogram}; the per-thread histograms are only merged
+ * when {@link Timer#getHistogram()} is called. Values read while other threads are still recording
+ * are a best effort snapshot.
+ * <p>
+ * Timers are usually keyed by {@link StopWatch#getId()}:
+ *
+ * <pre>
+ *    StopWatch sw = StopWatch.createStarted("parse");
+ *    parse(input);
+ *    sw.stop();
+ *    StopWatchRegistry.getInstance().record(sw);
+ * </pre>
+ *
+ * @author tjclancy
+ */
+public class StopWatchRegistry {
+    public static final int DEFAULT_SIGNIFICANT_DIGITS = 2;
+
+    private final ConcurrentMap<String, Timer> timers = new ConcurrentHashMap<>();
+    private final long highestTrackableValue;
+    private final int significantDigits;
+
+    public StopWatchRegistry() {
+        this(LatencyHistogram.DEFAULT_HIGHEST_TRACKABLE_VALUE, DEFAULT_SIGNIFICANT_DIGITS);
+    }
+
+    /**
+     * Creates a registry whose per-thread histograms use the given range and precision.
+     *
+     * @param highestTrackableValue The highest duration, in nanoseconds, tracked with full
+     *                              precision.
+     * @param significantDigits     The number of significant decimal digits to keep.
+     */
+    public StopWatchRegistry(long highestTrackableValue, int significantDigits) {
+        // Fail fast on a bad layout rather than on the first record() call.
+        new LatencyHistogram(highestTrackableValue, significantDigits);
+        this.highestTrackableValue = highestTrackableValue;
+        this.significantDigits = significantDigits;
+    }
+
+    /**
+     * @return The JVM wide registry.
+     */
+    public static StopWatchRegistry getInstance() {
+        return SingletonInstance.INSTANCE;
+    }
+
+    /**
+     * Returns the timer registered under name, creating it if necessary.
+     *
+     * @param name The timer name.
+     *
+     * @return The timer.
+     */
+    public Timer timer(String name) {
+        Timer timer = timers.get(name);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(name, Timer::new);
+        }
+        return timer;
+    }
+
+    public void record(String name, long nanos) {
+        timer(name).record(nanos);
+    }
+
+    /**
+     * Records the elapsed time of a stopped stop watch under the stop watch's id.
+     *
+     * @param sw A stopped stop watch.
+     */
+    public void record(StopWatch sw) {
+        record(sw.getId(), sw.elapsedTime());
+    }
+
+    public void time(String name, Runnable runnable) {
+        long start = System.nanoTime();
+        try {
+            runnable.run();
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    public <T> T time(String name, Supplier<T> supplier) {
+        long start = System.nanoTime();
+        try {
+            return supplier.get();
+        } finally {
+            record(name, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return A snapshot of the registered timers sorted by name.
+     */
+    public Map<String, Timer> getTimers() {
+        return Collections.unmodifiableMap(new TreeMap<>(timers));
+    }
+
+    public boolean contains(String name) {
+        return timers.containsKey(name);
+    }
+
+    public void clear() {
+        timers.clear();
+    }
+
+    /**
+     * Returns one line per timer containing its count, total, mean, max and p99 in the given time
+     * unit.
+     *
+     * @param timeUnit The unit to display times in.
+     *
+     * @return The report.
+     */
+    public String report(TimeUnit timeUnit) {
+        StringBuilder sb = new StringBuilder();
+        getTimers().values().forEach(timer -> sb.append(timer.toString(timeUnit)).append("\n"));
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return report(TimeUnit.MICROSECONDS);
+    }
+
+    /**
+     * The counters for one named operation.
+     */
+    public final class Timer {
+        private final String name;
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalTime = new LongAdder();
+        private final LongAccumulator maxTime = new LongAccumulator(Long::max, 0L);
+        private final List<LatencyHistogram> histograms = new CopyOnWriteArrayList<>();
+        private final ThreadLocal<LatencyHistogram> threadHistogram = ThreadLocal.withInitial(
+            this::newThreadHistogram);
+
+        private Timer(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Records a duration.
+         *
+         * @param nanos The duration in nanoseconds.
+         */
+        public void record(long nanos) {
+            if (nanos < 0) {
+                throw new IllegalArgumentException("A duration can't be negative: " + nanos);
+            }
+            count.increment();
+            totalTime.add(nanos);
+            maxTime.accumulate(nanos);
+            threadHistogram.get().record(nanos);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getTotalTime() {
+            return totalTime.sum();
+        }
+
+        public long getMaxTime() {
+            return maxTime.get();
+        }
+
+        public double getMeanTime() {
+            long n = getCount();
+            return n == 0 ? 0.0 : (double) getTotalTime() / n;
+        }
+
+        /**
+         * @return A new histogram containing the merged values recorded by every thread.
+         */
+        public LatencyHistogram getHistogram() {
+            LatencyHistogram merged = new LatencyHistogram(highestTrackableValue,
+                significantDigits);
+            histograms.forEach(merged::add);
+            return merged;
+        }
+
+        public String toString(TimeUnit timeUnit) {
+            long unitNanos = TimeUnit.NANOSECONDS.convert(1, timeUnit);
+            return String.format(
+                "%s: count: %d, total: %.3f, mean: %.3f, max: %.3f, p99: %.3f (%s)",
+                name, getCount(), (double) getTotalTime() / unitNanos, getMeanTime() / unitNanos,
+                (double) getMaxTime() / unitNanos,
+                (double) getHistogram().getValueAtPercentile(99.0) / unitNanos,
+                timeUnit.name().toLowerCase());
+        }
+
+        @Override
+        public String toString() {
+            return toString(TimeUnit.MICROSECONDS);
+        }
+
+        private LatencyHistogram newThreadHistogram() {
+            LatencyHistogram histogram = new LatencyHistogram(highestTrackableValue,
+                significantDigits);
+            histograms.add(histogram);
+            return histogram;
+        }
+    }
+
+    private static final class SingletonInstance {
+
+        static StopWatchRegistry INSTANCE = new StopWatchRegistry();
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+
+public class AsyncOutputSinkTest extends BaseUnitTest {
+
+    @Test
+    public void testWriteAndFlush() throws Exception {
+        writeBanner(methodName());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true);
+        StringBuilder expected = new StringBuilder();
+        try(AsyncOutputSink sink = new AsyncOutputSink(out, 16,
+            AsyncOutputSink.OverflowPolicy.BLOCK)) {
+            for (int i = 0; i < 1000; i++) {
+                sink.write("line " + i + "\n");
+                expected.append("line ").append(i).append("\n");
+            }
+            sink.flush();
+            assertEquals(expected.toString(), bytes.toString());
+        }
+    }
+
+    @Test
+    public void testConcurrentWriters() throws Exception {
+        writeBanner(methodName());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        AsyncOutputSink sink = new AsyncOutputSink(new PrintStream(bytes, true), 64,
+            AsyncOutputSink.OverflowPolicy.BLOCK);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 2500; i++) {
+                    sink.write("x\n");
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        sink.close();
+        assertTrue(sink.isClosed());
+        assertEquals(10_000, bytes.toString().split("\n").length);
+    }
+
+    @Test
+    public void testCloseWhileWriting() throws Exception {
+        writeBanner(methodName());
+        for (int round = 0; round < 20; round++) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            AsyncOutputSink sink = new AsyncOutputSink(new PrintStream(bytes, true), 8,
+                AsyncOutputSink.OverflowPolicy.BLOCK);
+            CountDownLatch started = new CountDownLatch(4);
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Thread thread = new Thread(() -> {
+                    started.countDown();
+                    for (int i = 0; i < 500; i++) {
+                        sink.write("x");
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            started.await();
+            sink.close();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertEquals(2000, bytes.size(), "Writes were lost while closing.");
+        }
+    }
+
+    @Test
+    public void testCountAndDrop() throws Exception {
+        writeBanner(methodName());
+        CountDownLatch writing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OutputStream blocking = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                write(new byte[]{(byte) b}, 0, 1);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                writing.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                bytes.write(b, off, len);
+            }
+        };
+        try(AsyncOutputSink sink = new AsyncOutputSink(new PrintStream(blocking, true), 2,
+            AsyncOutputSink.OverflowPolicy.COUNT_AND_DROP)) {
+            sink.write("a");
+            writing.await();
+            sink.write("b");
+            sink.write("c");
+            sink.write("d");
+            sink.write("e");
+            assertEquals(2, sink.getDroppedCount());
+            release.countDown();
+            sink.flush();
+            assertEquals("a[2 writes dropped, output buffer was full]" + System.lineSeparator()
+                + "bc", bytes.toString());
+        }
+    }
+
+    @Test
+    public void testUnitTestSupportAsyncOutput() throws Exception {
+        writeBanner(methodName());
+        pushBool(UnitTestSupport.getShowOutput());
+        PrintStream original = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            UnitTestSupport.setShowOutput(true);
+            UnitTestSupport.enableAsyncOutput();
+            assertTrue(UnitTestSupport.isAsyncOutput());
+            UnitTestSupport.writeln("async {0}", 1);
+            UnitTestSupport.write("async 2");
+            UnitTestSupport.flushOutput();
+            assertEquals("async 1" + System.lineSeparator() + "async 2", bytes.toString());
+        } finally {
+            UnitTestSupport.disableAsyncOutput();
+            System.setOut(original);
+            UnitTestSupport.setShowOutput(popBool());
+        }
+        assertFalse(UnitTestSupport.isAsyncOutput());
+    }
+}
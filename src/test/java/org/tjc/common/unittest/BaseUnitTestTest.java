@@ -26,10 +26,19 @@ package org.tjc.common.unittest;
 import java.math.BigDecimal;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.tjc.common.unittest.perf.BenchmarkResult;
+import org.tjc.common.unittest.perf.LatencyHistogram;
+import org.tjc.common.unittest.perf.MicroBenchmark;
 import org.tjc.common.unittest.perf.StopWatch;
+import org.tjc.common.unittest.perf.StopWatchRegistry;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 
 import static org.tjc.common.unittest.UnitTestSupport.getShowOutput;
 import static org.tjc.common.unittest.UnitTestSupport.methodName;
@@ -75,6 +84,38 @@ public class BaseUnitTestTest extends BaseUnitTest {
         showTimedResults(sw, results);
     }
 
+    @Test
+    public void testShowTimedResultsHistogram() {
+        writeBanner(methodName());
+        StopWatch sw = StopWatch.createStarted();
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 10_000; i++) {
+            histogram.record(sw.lap());
+        }
+        sw.stop();
+        showTimedResults(sw, histogram);
+    }
+
+    @Test
+    public void testShowTimers() {
+        writeBanner(methodName());
+        StopWatchRegistry registry = new StopWatchRegistry();
+        for (int i = 0; i < 100; i++) {
+            registry.time("sum", () -> Arrays.asList(1, 2, 3).stream().mapToInt(v -> v).sum());
+        }
+        showTimers(registry);
+    }
+
+    @Test
+    public void testShowBenchmarkResult() {
+        writeBanner(methodName());
+        BenchmarkResult result = MicroBenchmark.create("bigDecimalOf")
+            .warmupIterations(3)
+            .measurementIterations(5)
+            .run(() -> bigDecimalOf(3.14159));
+        showBenchmarkResult(result);
+    }
+
     @Test
     public void testShowResults() {
         writeBanner(methodName());
@@ -113,4 +154,85 @@ public class BaseUnitTestTest extends BaseUnitTest {
         return bd;
     }
 
+
+    @Test
+    public void testCountStdOut() {
+        writeBanner(methodName());
+        countStdOut();
+        try {
+            for (int i = 0; i < 1000; i++) {
+                System.out.println("chatty line");
+            }
+            System.out.print("no newline");
+        } finally {
+            releaseCountedStdOut();
+        }
+        writeln("bytes: {0}, lines: {1}, writes: {2}", getStdOutByteCount(), getStdOutLineCount(),
+            getStdOutWriteCount());
+        assertEquals(1000 * ("chatty line".length() + System.lineSeparator().length())
+            + "no newline".length(), getStdOutByteCount());
+        assertEquals(1000, getStdOutLineCount());
+    }
+
+    @Test
+    public void testCapturedStdOutLines() {
+        writeBanner(methodName());
+        captureStdOut();
+        try {
+            for (int i = 0; i < 100; i++) {
+                System.out.println("line " + i);
+            }
+            try(Stream<String> lines = capturedStdOutLines()) {
+                assertEquals("line 42", lines.skip(42).findFirst().orElse(null));
+            }
+            System.out.println("line 100");
+            try(Stream<String> lines = capturedStdOutLines()) {
+                assertEquals(101, lines.count());
+            }
+            try {
+                StdOutRedirector.getInstance()
+                    .startMatchingCapture(OutputExpectations.create().contains("x"));
+                fail("Expected an IllegalStateException.");
+            } catch (IllegalStateException e) {
+                assertTrue(e.getMessage().contains("already"));
+            }
+        } finally {
+            String captured = releaseStdOut();
+            assertTrue(captured.endsWith("line 100" + System.lineSeparator()));
+        }
+    }
+
+    @Test
+    public void testMatchStdOut() throws Exception {
+        writeBanner(methodName());
+        OutputExpectations expectations = OutputExpectations.create()
+            .inOrder("begin", "end")
+            .count("item", 3)
+            .doesNotContain("error");
+        matchStdOut(expectations);
+        try {
+            System.out.println("begin");
+            Thread child = new Thread(() -> System.out.println("item from child"));
+            child.start();
+            child.join();
+            System.out.println("item 1");
+            System.out.println("item 2");
+            System.out.print("end");
+        } finally {
+            assertEquals("", releaseStdOut());
+        }
+        expectations.verify();
+        assertEquals(5, expectations.getLineCount());
+
+        OutputExpectations failing = OutputExpectations.create().doesNotContain("error");
+        matchStdOut(failing);
+        try {
+            System.out.println("an error");
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("Caught expected error: {0}", e.getMessage());
+        } finally {
+            releaseStdOut();
+        }
+    }
 }
@@ -0,0 +1,139 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+/**
+ *
+ * @author tjclancy
+ */
+public class CallerInfoTest {
+
+    @Test
+    public void testCurrent() {
+        writeBanner(methodName());
+        CallerInfo info = CallerInfo.current();
+        writeln("{0}", info);
+        assertSame(CallerInfoTest.class, info.getDeclaringClass());
+        assertEquals(CallerInfoTest.class.getName(), info.getClassName());
+        assertEquals("testCurrent", info.getMethodName());
+        assertEquals("testCurrent()", info.getDisplayName());
+        assertEquals("CallerInfoTest.java", info.getFileName());
+        assertTrue(info.getLineNumber() > 0);
+        assertTrue(info.toString().contains("CallerInfoTest.testCurrent(CallerInfoTest.java:"));
+    }
+
+    @Test
+    public void testCallerAndDepth() {
+        writeBanner(methodName());
+        CallerInfo[] infos = helper();
+        assertEquals("helper", infos[0].getMethodName());
+        assertEquals("testCallerAndDepth", infos[1].getMethodName());
+        assertEquals("helper", infos[2].getMethodName());
+        assertEquals("testCallerAndDepth", infos[3].getMethodName());
+    }
+
+    @Test
+    public void testCachedPerCallSite() {
+        writeBanner(methodName());
+        CallerInfo first = null;
+        for (int i = 0; i < 3; i++) {
+            CallerInfo info = CallerInfo.current();
+            if (first == null) {
+                first = info;
+            }
+            assertSame(first, info);
+        }
+        CallerInfo other = CallerInfo.current();
+        assertNotSame(first, other);
+        assertEquals(first.getMethodName(), other.getMethodName());
+        assertTrue(other.getLineNumber() > first.getLineNumber());
+    }
+
+    @Test
+    public void testOverloads() {
+        writeBanner(methodName());
+        CallerInfo first = overloaded();
+        CallerInfo second = overloaded(1);
+        assertEquals("overloaded", first.getMethodName());
+        assertEquals("overloaded", second.getMethodName());
+        assertNotSame(first, second);
+        assertTrue(second.getLineNumber() > first.getLineNumber());
+        assertEquals(first.toString(), overloaded().toString());
+        assertEquals(second.toString(), overloaded(2).toString());
+    }
+
+    @Test
+    public void testMethodNames() {
+        writeBanner(methodName());
+        assertEquals("testMethodNames()", UnitTestSupport.methodName());
+        assertEquals("testMethodNames()", UnitTestSupport.getMethodName());
+        assertEquals("testMethodNames()", UnitTestSupport.thisMethodName());
+        Runnable lambda = () -> assertTrue(UnitTestSupport.methodName().startsWith("lambda$"));
+        lambda.run();
+    }
+
+    @Test
+    public void testInvalidDepth() {
+        writeBanner(methodName());
+        try {
+            CallerInfo.at(-1);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            CallerInfo.at(100_000);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    private static CallerInfo overloaded() {
+        return CallerInfo.current();
+    }
+
+    private static CallerInfo overloaded(int value) {
+        return CallerInfo.current();
+    }
+
+    private static CallerInfo[] helper() {
+        return new CallerInfo[] {
+            CallerInfo.current(),
+            CallerInfo.caller(),
+            CallerInfo.at(0),
+            CallerInfo.at(1)
+        };
+    }
+}
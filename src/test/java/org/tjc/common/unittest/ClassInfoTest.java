@@ -23,8 +23,18 @@
  */
 package org.tjc.common.unittest;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.VarHandle;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -73,4 +83,217 @@ public class ClassInfoTest extends BaseUnitTest {
         });
     }
 
+    @Test
+    public void testMetadataIsCached() throws Exception {
+        writeBanner(methodName());
+        List<Method> methods = new ClassInfo(String.class).getMethods();
+        assertEquals(methods, new ClassInfo("Hello").getMethods());
+        assertEquals(new ClassInfo(Sample.class).getDeclaredFields(),
+            new ClassInfo(Sample.class).getDeclaredFields());
+        try {
+            methods.clear();
+            fail("Expected an UnsupportedOperationException.");
+        } catch (UnsupportedOperationException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Test
+    public void testAccessibleFlagIsNotShared() throws Exception {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(UnitTestSupport.class);
+        Method print = info.findMethod("print", String.class);
+        assertFalse(print.canAccess(null));
+        print.setAccessible(true);
+        assertTrue(print.canAccess(null));
+        assertNotSame(print, info.findMethod("print", String.class));
+        assertFalse(info.findMethod("print", String.class).canAccess(null));
+        assertFalse(info.getDeclaredMethods().stream()
+            .filter(m -> m.getName().equals("print"))
+            .anyMatch(m -> m.canAccess(null)));
+    }
+
+    @Test
+    public void testDeclaredMembers() throws Exception {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(Sample.class);
+        assertSame(Sample.class, info.getType());
+        assertEquals(3, info.getDeclaredFields().size());
+        assertEquals(2, info.getConstructors().size());
+        assertTrue(info.getDeclaredMethods().stream().anyMatch(m -> m.getName().equals("secret")));
+        assertTrue(info.isAnnotationPresent(Deprecated.class));
+        assertEquals("test", info.getAnnotation(Deprecated.class).since());
+        assertNull(new ClassInfo(SubSample.class).getAnnotation(Deprecated.class));
+        assertEquals("secret",
+            new ClassInfo(SubSample.class).findMethod("secret", String.class).getName());
+        assertEquals("count", new ClassInfo(SubSample.class).findField("count").getName());
+    }
+
+    @Test
+    public void testInvoke() throws Throwable {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(SubSample.class);
+        Sample sample = new SubSample();
+        Class<?>[] stringParam = {String.class};
+        for (int i = 0; i < 3; i++) {
+            assertEquals("secret: " + i, info.invoke(sample, "secret", stringParam, "" + i));
+        }
+        assertEquals(14, info.invoke(null, "twice", new Class<?>[] {int.class}, 7));
+        assertNull(info.invoke(sample, "increment", new Class<?>[0]));
+        assertEquals(11, sample.count);
+        assertEquals(5, new ClassInfo(String.class)
+            .invoke("Hello", "length", new Class<?>[0]));
+
+        MethodHandle handle = info.getMethodHandle("secret", String.class);
+        assertSame(handle, info.getMethodHandle("secret", String.class));
+        assertEquals("secret: x", (String) handle.invoke(sample, "x"));
+
+        try {
+            info.invoke(sample, "fail", new Class<?>[0]);
+            fail("Expected an InvocationTargetException.");
+        } catch (InvocationTargetException e) {
+            writeln("Caught expected exception: {0}", e.getCause());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void testNewInstance() throws Exception {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(Sample.class);
+        Sample sample = (Sample) info.newInstance(new Class<?>[] {int.class}, 42);
+        assertEquals(42, sample.count);
+        assertEquals(10, ((Sample) info.newInstance(new Class<?>[0])).count);
+    }
+
+    @Test
+    public void testFieldAccess() throws Exception {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(SubSample.class);
+        Sample sample = new SubSample();
+        assertEquals(10, info.getFieldValue(sample, "count"));
+        info.setFieldValue(sample, "count", 12);
+        assertEquals(12, sample.count);
+        assertEquals("sample", info.getFieldValue(sample, "name"));
+
+        info.setFieldValue(null, "instances", 3L);
+        assertEquals(3L, info.getFieldValue(null, "instances"));
+
+        VarHandle handle = info.getVarHandle("count");
+        assertSame(handle, info.getVarHandle("count"));
+        assertEquals(12, (int) handle.get(sample));
+
+        try {
+            info.setFieldValue(sample, "name", "changed");
+            fail("Expected an UnsupportedOperationException.");
+        } catch (UnsupportedOperationException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Test
+    public void testMissingMembers() throws Exception {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(Sample.class);
+        try {
+            info.invoke(new Sample(), "missing", new Class<?>[0]);
+            fail("Expected a NoSuchMethodException.");
+        } catch (NoSuchMethodException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            info.getFieldValue(new Sample(), "missing");
+            fail("Expected a NoSuchFieldException.");
+        } catch (NoSuchFieldException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            info.newInstance(new Class<?>[] {String.class}, "x");
+            fail("Expected a NoSuchMethodException.");
+        } catch (NoSuchMethodException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            info.invoke(new Sample(), "secret", new Class<?>[] {String.class});
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Test
+    public void testArgumentTypes() throws Exception {
+        writeBanner(methodName());
+        ClassInfo info = new ClassInfo(Sample.class);
+        Class<?>[] intParam = {int.class};
+        assertEquals(6, info.invoke(null, "twice", intParam, (short) 3));
+        assertEquals(194, info.invoke(null, "twice", intParam, 'a'));
+        Object[][] badArgs = {{"3"}, {null}, {3L}, {3.0}, {true}};
+        for (Object[] args : badArgs) {
+            try {
+                info.invoke(null, "twice", intParam, args);
+                fail("Expected an IllegalArgumentException.");
+            } catch (IllegalArgumentException e) {
+                writeln("Caught expected exception: {0}", e);
+            }
+        }
+        try {
+            info.invoke(new Sample(), "secret", new Class<?>[] {String.class}, 42);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            info.invoke("not a sample", "secret", new Class<?>[] {String.class}, "x");
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            info.invoke(null, "secret", new Class<?>[] {String.class}, "x");
+            fail("Expected a NullPointerException.");
+        } catch (NullPointerException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            info.newInstance(intParam, "42");
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Deprecated(since = "test")
+    private static class Sample {
+        private static long instances;
+        private final String name = "sample";
+        private int count;
+
+        private Sample() {
+            this(10);
+        }
+
+        private Sample(int count) {
+            this.count = count;
+        }
+
+        private String secret(String value) {
+            return "secret: " + value;
+        }
+
+        private static int twice(int value) {
+            return 2 * value;
+        }
+
+        private void increment() {
+            count++;
+        }
+
+        private void fail() {
+            throw new IllegalStateException("failed on purpose");
+        }
+    }
+
+    private static class SubSample extends Sample {
+    }
 }
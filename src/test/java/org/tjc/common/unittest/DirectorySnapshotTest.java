@@ -0,0 +1,135 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.Comparator;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tjc.common.unittest.memfs.MemoryFileSystem;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class DirectorySnapshotTest {
+    private MemoryFileSystem fs;
+    private Path root;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fs = MemoryFileSystem.create();
+        root = Files.createDirectories(fs.getPath("/out"));
+        for (int d = 0; d < 3; d++) {
+            Path dir = Files.createDirectories(root.resolve("d" + d));
+            for (int f = 0; f < 10; f++) {
+                Files.writeString(dir.resolve("f" + f + ".txt"), "content " + d + "/" + f);
+            }
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    @Test
+    public void testTake() throws Exception {
+        writeBanner(methodName());
+        DirectorySnapshot snapshot = DirectorySnapshot.take(root);
+        writeln("{0}", snapshot);
+        assertEquals(30, snapshot.getFileCount());
+        assertEquals(30, snapshot.getHashedFileCount());
+        DirectorySnapshot.Entry entry = snapshot.getEntry("d1/f2.txt");
+        assertEquals("content 1/2".length(), entry.getSize());
+        assertEquals(64, entry.getHash().length());
+        assertEquals("d0/f0.txt", snapshot.getEntries().keySet().iterator().next());
+    }
+
+    @Test
+    public void testRefreshAndDiff() throws Exception {
+        writeBanner(methodName());
+        DirectorySnapshot before = DirectorySnapshot.take(root);
+        Path changed = root.resolve("d0/f1.txt");
+        FileTime modified = Files.getLastModifiedTime(changed);
+        Files.writeString(changed, "new content");
+        Files.setLastModifiedTime(changed, FileTime.fromMillis(modified.toMillis() + 1000));
+        Files.delete(root.resolve("d1/f3.txt"));
+        Files.writeString(root.resolve("d2/new.txt"), "added");
+
+        DirectorySnapshot after = before.refresh();
+        assertEquals(2, after.getHashedFileCount());
+        assertSame(before.getEntry("d2/f9.txt"), after.getEntry("d2/f9.txt"));
+
+        DirectorySnapshot.Diff diff = before.diff(after);
+        writeln("{0}", diff);
+        assertEquals(List.of("d2/new.txt"), diff.getAdded());
+        assertEquals(List.of("d1/f3.txt"), diff.getRemoved());
+        assertEquals(List.of("d0/f1.txt"), diff.getChanged());
+        assertTrue(after.diff(after.refresh()).isEmpty());
+    }
+
+    @Test
+    public void testFlatDirectory() throws Exception {
+        writeBanner(methodName());
+        Path flat = Files.createDirectories(fs.getPath("/flat"));
+        for (int f = 0; f < 500; f++) {
+            Files.writeString(flat.resolve("f" + f + ".txt"), ("flat " + f + "\n").repeat(f));
+        }
+        DirectorySnapshot snapshot = DirectorySnapshot.take(flat);
+        writeln("{0}", snapshot);
+        assertEquals(500, snapshot.getFileCount());
+        assertEquals(500, snapshot.getHashedFileCount());
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        for (int f = 0; f < 500; f += 50) {
+            byte[] hash = digest.digest(Files.readAllBytes(flat.resolve("f" + f + ".txt")));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            assertEquals(hex.toString(), snapshot.getEntry("f" + f + ".txt").getHash());
+        }
+    }
+
+    @Test
+    public void testCompareTrees() throws Exception {
+        writeBanner(methodName());
+        Path disk = Files.createTempDirectory("snapshot");
+        try {
+            UnitTestSupport.copyDirectory(root, disk);
+            assertTrue(DirectorySnapshot.take(root).diff(DirectorySnapshot.take(disk)).isEmpty());
+        } finally {
+            try(var paths = Files.walk(disk)) {
+                paths.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+            }
+        }
+    }
+}
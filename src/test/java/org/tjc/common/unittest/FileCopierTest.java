@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.FileNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.copy;
+import static org.tjc.common.unittest.UnitTestSupport.copyDirectory;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class FileCopierTest {
+    private Path root;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("copier");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try(Stream<Path> paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Test
+    public void testCopyFile() throws Exception {
+        writeBanner(methodName());
+        byte[] data = new byte[300_000];
+        new Random(7).nextBytes(data);
+        Path src = Files.write(root.resolve("src.bin"), data);
+        Path dst = Files.write(root.resolve("dst.bin"), new byte[500_000]);
+        assertEquals(data.length, copy(src, dst));
+        assertArrayEquals(data, Files.readAllBytes(dst));
+
+        Path dst2 = root.resolve("dst2.bin");
+        copy(src.toString(), dst2.toString());
+        assertArrayEquals(data, Files.readAllBytes(dst2));
+    }
+
+    @Test
+    public void testCopyMissingFile() throws Exception {
+        writeBanner(methodName());
+        try {
+            copy(root.resolve("missing").toString(), root.resolve("dst").toString());
+            fail("Expected a FileNotFoundException");
+        } catch (FileNotFoundException e) {
+            writeln("Caught expected exception: {0}", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testCopyDirectory() throws Exception {
+        writeBanner(methodName());
+        Path src = root.resolve("src");
+        long expectedBytes = 0;
+        for (int d = 0; d < 4; d++) {
+            Path dir = Files.createDirectories(src.resolve("a" + d).resolve("b"));
+            for (int f = 0; f < 10; f++) {
+                byte[] data = new byte[d * 1000 + f];
+                Files.write(dir.resolve("f" + f + ".dat"), data);
+                expectedBytes += data.length;
+            }
+        }
+        Files.writeString(src.resolve("skip.tmp"), "temp");
+        Path dst = root.resolve("dst");
+        FileCopier.CopyResult result = copyDirectory(src, dst);
+        writeln("{0}", result);
+        assertEquals(41, result.getFiles());
+        assertEquals(expectedBytes + 4, result.getBytes());
+        assertArrayEquals(Files.readAllBytes(src.resolve("a3/b/f9.dat")),
+            Files.readAllBytes(dst.resolve("a3/b/f9.dat")));
+
+        Path filtered = root.resolve("filtered");
+        result = FileCopier.copyDirectory(src, filtered, PathFilter.extension("dat"));
+        assertEquals(40, result.getFiles());
+        assertFalse(Files.exists(filtered.resolve("skip.tmp")));
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.filesInFileTree;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.walkFiles;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class FileTreeWalkerTest {
+    private Path root;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("walker");
+        for (int d = 0; d < 5; d++) {
+            Path dir = Files.createDirectories(root.resolve("dir" + d).resolve("sub"));
+            for (int f = 0; f < 20; f++) {
+                Files.writeString(dir.resolve("file" + f + ".json"), "x".repeat(f));
+                Files.writeString(dir.getParent().resolve("file" + f + ".TXT"), "y");
+            }
+        }
+        Files.writeString(root.resolve("top.json"), "{}");
+        Files.setLastModifiedTime(root.resolve("top.json"), FileTime.from(Instant.EPOCH));
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try(Stream<Path> paths = Files.walk(root)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+                Files.delete(p);
+            }
+        }
+    }
+
+    @Test
+    public void testStreamMatchesFilesInFileTree() throws Exception {
+        writeBanner(methodName());
+        Set<Path> expected = new HashSet<>(filesInFileTree(root));
+        try(Stream<Path> files = FileTreeWalker.create(root).queueCapacity(4).stream()) {
+            Set<Path> actual = files.collect(Collectors.toSet());
+            writeln("files: {0}", actual.size());
+            assertEquals(expected, actual);
+        }
+        assertEquals(201, expected.size());
+    }
+
+    @Test
+    public void testForEach() throws Exception {
+        writeBanner(methodName());
+        Set<Path> visited = ConcurrentHashMap.newKeySet();
+        FileTreeWalker.create(root).parallelism(3).forEach((file, attrs) -> {
+            assertTrue(attrs.isRegularFile());
+            visited.add(file);
+        });
+        assertEquals(201, visited.size());
+    }
+
+    @Test
+    public void testFilters() throws Exception {
+        writeBanner(methodName());
+        assertEquals(101, count(PathFilter.extension("json")));
+        assertEquals(100, count(PathFilter.extension("txt")));
+        assertEquals(100, count(PathFilter.glob("file*.json")));
+        assertEquals(55, count(PathFilter.glob("file1?.json").or(PathFilter.glob("file1.*"))
+            .and(PathFilter.extension("json"))));
+        assertEquals(5, count(PathFilter.sizeBetween(19, 19)));
+        assertEquals(1, count(PathFilter.modifiedBefore(Instant.EPOCH.plusSeconds(1))));
+        assertEquals(200, count(PathFilter.modifiedAfter(Instant.EPOCH.plusSeconds(1))));
+        assertEquals(0, count(PathFilter.all().negate()));
+    }
+
+    @Test
+    public void testNameStage() throws Exception {
+        writeBanner(methodName());
+        Path json = Path.of("a.json");
+        Path text = Path.of("a.txt");
+        PathFilter byName = PathFilter.extension("json");
+        assertFalse(byName.needsAttributes());
+        assertTrue(byName.acceptName(json));
+        assertFalse(byName.acceptName(text));
+        assertTrue(byName.negate().acceptName(text));
+        assertFalse(PathFilter.glob("*.txt").and(byName).acceptName(text));
+        assertTrue(PathFilter.glob("*.txt").or(byName).acceptName(text));
+
+        PathFilter bySize = byName.and(PathFilter.largerThan(10));
+        assertTrue(bySize.needsAttributes());
+        assertTrue(bySize.acceptName(json));
+        assertFalse(bySize.acceptName(text));
+        assertTrue(bySize.negate().acceptName(json));
+        assertTrue(bySize.negate().acceptName(text));
+        assertTrue(byName.or(PathFilter.largerThan(10)).acceptName(text));
+        assertEquals(45, count(bySize));
+        assertEquals(156, count(bySize.negate()));
+    }
+
+    @Test
+    public void testDepthAndDirectoryFilter() throws Exception {
+        writeBanner(methodName());
+        try(Stream<Path> files = FileTreeWalker.create(root).maxDepth(1).stream()) {
+            assertEquals(1, files.count());
+        }
+        try(Stream<Path> files = FileTreeWalker.create(root).maxDepth(2).stream()) {
+            assertEquals(101, files.count());
+        }
+        try(Stream<Path> files = FileTreeWalker.create(root)
+            .directoryFilter(PathFilter.glob("sub").negate())
+            .stream()) {
+            assertEquals(101, files.count());
+        }
+    }
+
+    @Test
+    public void testEarlyClose() throws Exception {
+        writeBanner(methodName());
+        try(Stream<Path> files = walkFiles(root, PathFilter.all())) {
+            assertEquals(3, files.limit(3).count());
+        }
+    }
+
+    @Test
+    public void testMissingStart() throws Exception {
+        writeBanner(methodName());
+        Path missing = root.resolve("missing");
+        try(Stream<Path> files = FileTreeWalker.create(missing).stream()) {
+            files.count();
+            fail("Expected an UncheckedIOException");
+        } catch (UncheckedIOException e) {
+            writeln("Caught expected exception: {0}", e.getMessage());
+        }
+        try {
+            FileTreeWalker.create(missing).forEach((file, attrs) -> {
+            });
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            writeln("Caught expected exception: {0}", e.getMessage());
+        }
+    }
+
+    private long count(PathFilter filter) {
+        try(Stream<Path> files = walkFiles(root, filter)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.fileToString;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.readLines;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class FixtureCacheTest {
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("fixture-cache");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try(var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Test
+    public void testHitAndInvalidate() throws Exception {
+        writeBanner(methodName());
+        FixtureCache cache = new FixtureCache();
+        Path file = Files.writeString(dir.resolve("a.txt"), "one\ntwo\n");
+        String first = cache.getString(file, StandardCharsets.UTF_8);
+        assertSame(first, cache.getString(file, StandardCharsets.UTF_8));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+
+        Files.writeString(file, "one\ntwo\nthree\n");
+        assertEquals("one\ntwo\nthree\n", cache.getString(file, StandardCharsets.UTF_8));
+        assertEquals(2, cache.getMissCount());
+
+        FileTime modified = Files.getLastModifiedTime(file);
+        Files.writeString(file, "ONE\nTWO\nTHREE\n");
+        Files.setLastModifiedTime(file, FileTime.from(modified.toInstant().plusSeconds(1)));
+        assertEquals("ONE\nTWO\nTHREE\n", cache.getString(file, StandardCharsets.UTF_8));
+        assertEquals(1, cache.size());
+
+        FileTime second = FileTime.from(modified.toInstant().plusSeconds(2));
+        Files.setLastModifiedTime(file, second);
+        cache.getString(file, StandardCharsets.UTF_8);
+        Files.writeString(file, "one\ntwo\nthree\n");
+        Files.setLastModifiedTime(file, FileTime.from(second.toInstant().plusNanos(1000)));
+        if (!Files.getLastModifiedTime(file).equals(second)) {
+            assertEquals("one\ntwo\nthree\n", cache.getString(file, StandardCharsets.UTF_8));
+        }
+        writeln("{0}", cache);
+    }
+
+    @Test
+    public void testLinesAreImmutable() throws Exception {
+        writeBanner(methodName());
+        FixtureCache cache = new FixtureCache();
+        Path file = Files.writeString(dir.resolve("a.txt"), "one\ntwo\n");
+        List<String> lines = cache.getLines(file);
+        assertEquals(List.of("one", "two"), lines);
+        assertSame(lines, cache.getLines(file));
+        try {
+            lines.add("three");
+            fail("Expected an UnsupportedOperationException");
+        } catch (UnsupportedOperationException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        writeBanner(methodName());
+        FixtureCache cache = new FixtureCache();
+        cache.setMaxBytes(250);
+        Path a = Files.writeString(dir.resolve("a.txt"), "a".repeat(100));
+        Path b = Files.writeString(dir.resolve("b.txt"), "b".repeat(100));
+        Path c = Files.writeString(dir.resolve("c.txt"), "c".repeat(100));
+        Path big = Files.writeString(dir.resolve("big.txt"), "x".repeat(300));
+        cache.getString(a, StandardCharsets.UTF_8);
+        cache.getString(b, StandardCharsets.UTF_8);
+        cache.getString(a, StandardCharsets.UTF_8);
+        cache.getString(c, StandardCharsets.UTF_8);
+        assertEquals(1, cache.getEvictionCount());
+        assertEquals(200, cache.getCachedBytes());
+        cache.getString(a, StandardCharsets.UTF_8);
+        assertEquals(2, cache.getHitCount());
+        cache.getString(b, StandardCharsets.UTF_8);
+        assertEquals(4, cache.getMissCount());
+
+        cache.getString(big, StandardCharsets.UTF_8);
+        assertEquals(2, cache.size());
+        writeln("{0}", cache);
+    }
+
+    @Test
+    public void testUnitTestSupportUsesCache() throws Exception {
+        writeBanner(methodName());
+        FixtureCache cache = FixtureCache.getInstance();
+        Path file = Files.writeString(dir.resolve("a.txt"), "one\ntwo\n");
+        cache.setEnabled(true);
+        try {
+            cache.resetStatistics();
+            String text = fileToString(file);
+            assertSame(text, fileToString(file));
+            assertSame(text, UnitTestSupport.Strings.fromFile(file));
+            assertSame(readLines(file), readLines(file));
+            assertEquals(3, cache.getHitCount());
+            assertEquals(2, cache.getMissCount());
+        } finally {
+            cache.setEnabled(false);
+        }
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,160 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class GoldenFilesTest {
+    private Path golden;
+    private Path actual;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        golden = Files.createTempFile("golden", ".txt");
+        actual = Files.createTempFile("actual", ".txt");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        Files.delete(golden);
+        Files.delete(actual);
+    }
+
+    @Test
+    public void testSameContent() throws Exception {
+        writeBanner(methodName());
+        String text = "line of golden output\n".repeat(10_000);
+        Files.writeString(golden, text);
+        Files.writeString(actual, text);
+        GoldenFiles.assertSameContent(golden, actual);
+        GoldenFiles.assertSameContent(golden, actual, 1000);
+        assertEquals(-1, GoldenFiles.mismatch(golden, actual));
+    }
+
+    @Test
+    public void testDifference() throws Exception {
+        writeBanner(methodName());
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            text.append("record ").append(i).append('\n');
+        }
+        Files.writeString(golden, text);
+        int offset = text.indexOf("record 7777\n") + 9;
+        text.setCharAt(offset, 'X');
+        Files.writeString(actual, text);
+        assertEquals(offset, GoldenFiles.mismatch(golden, actual));
+        try {
+            GoldenFiles.assertSameContent(golden, actual, 4096);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            assertTrue(e.getMessage().contains("byte " + offset + " (line 7778, column 10)"));
+            assertTrue(e.getMessage().contains("record 77X7\\n"));
+        }
+    }
+
+    @Test
+    public void testPrefix() throws Exception {
+        writeBanner(methodName());
+        Files.writeString(golden, "abc\ndef\n");
+        Files.writeString(actual, "abc\n");
+        assertEquals(4, GoldenFiles.mismatch(golden, actual));
+        try {
+            GoldenFiles.assertSameContent(golden, actual);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            assertTrue(e.getMessage().contains("line 2, column 1"));
+            assertTrue(e.getMessage().contains("<EOF>"));
+        }
+    }
+
+    @Test
+    public void testMismatchAtLineStart() throws Exception {
+        writeBanner(methodName());
+        Files.writeString(golden, "abc\ndef\n");
+        Files.writeString(actual, "xbc\ndef\n");
+        assertEquals(0, GoldenFiles.mismatch(golden, actual));
+        try {
+            GoldenFiles.assertSameContent(golden, actual);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            String[] lines = e.getMessage().split("\\R");
+            assertTrue(e.getMessage().contains("line 1, column 1"));
+            assertFalse(e.getMessage().contains("<EOF>"));
+            assertEquals("  expected: abc\\ndef\\n", lines[3]);
+            assertEquals("  actual  : xbc\\ndef\\n", lines[4]);
+            assertEquals("  expected: ".length(), lines[5].indexOf('^'));
+        }
+
+        Files.writeString(actual, "abc\nxef\n");
+        try {
+            GoldenFiles.assertSameContent(golden, actual);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            String[] lines = e.getMessage().split("\\R");
+            assertTrue(e.getMessage().contains("line 2, column 1"));
+            assertEquals("  expected: def\\n", lines[3]);
+            assertEquals("  expected: ".length(), lines[5].indexOf('^'));
+        }
+
+        Files.writeString(golden, "");
+        Files.writeString(actual, "abc\n");
+        try {
+            GoldenFiles.assertSameContent(golden, actual);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            String[] lines = e.getMessage().split("\\R");
+            assertTrue(e.getMessage().contains("line 1, column 1"));
+            assertEquals("  expected: <EOF>", lines[3]);
+            assertEquals("  actual  : abc\\n", lines[4]);
+            assertEquals("  expected: ".length(), lines[5].indexOf('^'));
+        }
+
+        String longLine = "a".repeat(10000);
+        Files.writeString(golden, "abc\n" + longLine + "\n");
+        Files.writeString(actual, "abc\n" + longLine.substring(1) + "b\n");
+        try {
+            GoldenFiles.assertSameContent(golden, actual);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            assertTrue(e.getMessage().contains("line 2, column 10000"));
+        }
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.countLines;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.readLines;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class LineCounterTest {
+
+    @Test
+    public void testTerminators() throws Exception {
+        writeBanner(methodName());
+        assertEquals(0, count(""));
+        assertEquals(1, count("a"));
+        assertEquals(1, count("a\n"));
+        assertEquals(2, count("a\nb"));
+        assertEquals(1, count("\r\n"));
+        assertEquals(2, count("\n\r"));
+        assertEquals(3, count("a\rb\r\nc\n"));
+        assertEquals(3, count("\n\n\n"));
+    }
+
+    @Test
+    public void testChunksMatchReadLines() throws Exception {
+        writeBanner(methodName());
+        Random random = new Random(42);
+        String[] terminators = {"\n", "\r", "\r\n"};
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            text.append("x".repeat(random.nextInt(20)));
+            text.append(terminators[random.nextInt(terminators.length)]);
+        }
+        text.append("last");
+        Path file = Files.createTempFile("line-counter", ".txt");
+        try {
+            Files.writeString(file, text);
+            long expected = readLines(file).size();
+            writeln("lines: {0}", expected);
+            assertEquals(expected, countLines(file));
+            for (int chunkSize : new int[]{1, 2, 7, 64, 1000}) {
+                assertEquals(expected, LineCounter.countLines(file, chunkSize));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testRanges() throws Exception {
+        writeBanner(methodName());
+        ByteBuffer buffer = ByteBuffer.wrap("a\r\nb\r\nc".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(2, LineCounter.countLineTerminators(buffer, 0, buffer.limit()));
+        assertEquals(1, LineCounter.countLineTerminators(buffer, 0, 2));
+        assertEquals(0, LineCounter.countLineTerminators(buffer, 2, 3));
+        assertEquals(1, LineCounter.countLineTerminators(buffer, 3, buffer.limit()));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testInvalidChunkSize() throws Exception {
+        writeBanner(methodName());
+        try {
+            LineCounter.countLines(Path.of("pom.xml"), 0);
+            fail("Expected an IllegalArgumentException");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e.getMessage());
+        }
+    }
+
+    private static long count(String text) throws Exception {
+        Path file = Files.createTempFile("line-counter", ".txt");
+        try {
+            Files.writeString(file, text);
+            long count = LineCounter.countLines(file, 1);
+            assertEquals(readLines(file).size(), count);
+            return count;
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
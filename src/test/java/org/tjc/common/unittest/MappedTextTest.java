@@ -0,0 +1,95 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.fileToCharSequence;
+import static org.tjc.common.unittest.UnitTestSupport.fileToString;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+
+public class MappedTextTest {
+
+    @Test
+    public void testRead() throws Exception {
+        writeBanner(methodName());
+        check("", StandardCharsets.UTF_8);
+        check("plain ascii text\n".repeat(100), StandardCharsets.UTF_8);
+        check("café € 中文\n".repeat(100), StandardCharsets.UTF_8);
+        check("café déjà vu\n", StandardCharsets.ISO_8859_1);
+        check("über\n", StandardCharsets.UTF_16);
+    }
+
+    @Test
+    public void testView() throws Exception {
+        writeBanner(methodName());
+        Path file = Files.createTempFile("mapped-text", ".txt");
+        try {
+            Files.writeString(file, "hello, mapped world");
+            CharSequence view = fileToCharSequence(file, StandardCharsets.UTF_8);
+            assertEquals(19, view.length());
+            assertEquals('m', view.charAt(7));
+            assertEquals("mapped", view.subSequence(7, 13).toString());
+            assertEquals("hello, mapped world", view.toString());
+
+            Files.writeString(file, "été", StandardCharsets.UTF_8);
+            assertEquals("été", fileToCharSequence(file, StandardCharsets.UTF_8)
+                .toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testIsAscii() throws Exception {
+        writeBanner(methodName());
+        assertTrue(MappedText.isAscii(ByteBuffer.wrap("0123456789abcdef".getBytes())));
+        byte[] bytes = "0123456789abcdefg".getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < bytes.length; i++) {
+            byte[] copy = bytes.clone();
+            copy[i] = (byte) 0xc3;
+            assertFalse(MappedText.isAscii(ByteBuffer.wrap(copy)), "index " + i);
+        }
+    }
+
+    private static void check(String text, Charset charset) throws Exception {
+        Path file = Files.createTempFile("mapped-text", ".txt");
+        try {
+            Files.write(file, text.getBytes(charset));
+            assertEquals(text, MappedText.read(file, charset));
+            assertEquals(text, fileToString(file, charset));
+            assertEquals(text, MappedText.view(file, charset).toString());
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.text.MessageFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+
+public class MessageFormatsTest {
+
+    @Test
+    public void testFormat() {
+        writeBanner(methodName());
+        String pattern = "name: {0}, count: {1}";
+        assertEquals(MessageFormat.format(pattern, "a", 1000), MessageFormats.format(pattern, "a",
+            1000));
+        assertEquals(MessageFormat.format(pattern, "b", 2), MessageFormats.format(pattern, "b", 2));
+        assertSame(MessageFormats.compiled(pattern), MessageFormats.compiled(pattern));
+    }
+
+    @Test
+    public void testCacheIsBounded() {
+        writeBanner(methodName());
+        MessageFormats.clear();
+        for (int i = 0; i < MessageFormats.MAX_CACHED_PATTERNS * 2; i++) {
+            MessageFormats.format("pattern " + i + ": {0}", i);
+        }
+        assertEquals(MessageFormats.MAX_CACHED_PATTERNS, MessageFormats.cachedPatternCount());
+        MessageFormats.clear();
+        assertEquals(0, MessageFormats.cachedPatternCount());
+    }
+
+    @Test
+    public void testConcurrentFormat() throws Exception {
+        writeBanner(methodName());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        String expected = "value " + i + " of " + Thread.currentThread().getName();
+                        String actual = MessageFormats.format("value {0} of {1}",
+                            Integer.toString(i), Thread.currentThread().getName());
+                        if (!expected.equals(actual)) {
+                            return false;
+                        }
+                    }
+                    return true;
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertEquals(Boolean.TRUE, future.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
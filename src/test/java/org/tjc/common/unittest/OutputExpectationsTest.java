@@ -0,0 +1,164 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class OutputExpectationsTest {
+
+    @Test
+    public void testVerifyLines() throws Exception {
+        writeBanner(methodName());
+        OutputExpectations expectations = OutputExpectations.create()
+            .contains("started")
+            .matches("took \\d+ ms")
+            .inOrder("step 1", "step 2", "step 3")
+            .count("WARN", 2)
+            .doesNotContain("Exception");
+        expectations.verify(Stream.of("started", "step 1", "WARN a", "step 2", "took 12 ms",
+            "WARN b", "step 3"));
+        assertEquals(7, expectations.getLineCount());
+    }
+
+    @Test
+    public void testEarlyExit() throws Exception {
+        writeBanner(methodName());
+        OutputExpectations expectations = OutputExpectations.create().doesNotContain("boom");
+        int[] consumed = new int[1];
+        Stream<String> lines = Stream.of("a", "boom", "c", "d").peek(line -> consumed[0]++);
+        try {
+            expectations.verify(lines);
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            assertTrue(e.getMessage().contains("line 2"));
+        }
+        assertEquals(2, consumed[0]);
+        assertTrue(expectations.isFailed());
+    }
+
+    @Test
+    public void testOutOfOrder() throws Exception {
+        writeBanner(methodName());
+        OutputExpectations expectations = OutputExpectations.create().inOrder("one", "two");
+        try {
+            expectations.verify(Stream.of("two", "one"));
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            assertTrue(e.getMessage().contains("line 1"));
+        }
+    }
+
+    @Test
+    public void testUnmetAtEnd() throws Exception {
+        writeBanner(methodName());
+        OutputExpectations expectations = OutputExpectations.create()
+            .contains("missing")
+            .countBetween("x", 2, 3);
+        try {
+            expectations.verify(Stream.of("x"));
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            writeln("{0}", e.getMessage());
+            assertTrue(e.getMessage().contains("\"missing\""));
+            assertTrue(e.getMessage().contains("2..3 lines"));
+        }
+    }
+
+    @Test
+    public void testMatchingCapture() throws Exception {
+        writeBanner(methodName());
+        StdOutRedirector redirector = StdOutRedirector.getInstance();
+        OutputExpectations expectations = OutputExpectations.create()
+            .inOrder("begin", "end")
+            .count("item", 3);
+        redirector.startMatchingCapture(expectations);
+        try {
+            System.out.println("begin");
+            for (int i = 0; i < 3; i++) {
+                System.out.print("item " + i + "\r\n");
+            }
+            System.out.print("end");
+        } finally {
+            redirector.stopCapture();
+        }
+        expectations.verify();
+        assertEquals(5, expectations.getLineCount());
+    }
+
+    @Test
+    public void testMatchingCaptureFailsOnWrite() throws Exception {
+        writeBanner(methodName());
+        StdOutRedirector redirector = StdOutRedirector.getInstance();
+        OutputExpectations expectations = OutputExpectations.create().count("item", 1);
+        redirector.startMatchingCapture(expectations);
+        int printed = 0;
+        try {
+            for (int i = 0; i < 10; i++) {
+                System.out.println("item " + i);
+                printed++;
+            }
+            fail("Expected an AssertionError");
+        } catch (AssertionError e) {
+            assertTrue(e.getMessage().contains("found 2"));
+        } finally {
+            redirector.stopCapture();
+        }
+        assertEquals(1, printed);
+    }
+
+    @Test
+    public void testCapturedLines() throws Exception {
+        writeBanner(methodName());
+        StdOutRedirector redirector = StdOutRedirector.getInstance();
+        redirector.startSpillingCapture(16);
+        try {
+            for (int i = 0; i < 100; i++) {
+                System.out.println("line " + i);
+            }
+        } finally {
+            redirector.stopCapture();
+        }
+        try(Stream<String> lines = redirector.capturedLines()) {
+            assertEquals("line 42", lines.skip(42).findFirst().orElse(null));
+        }
+        try(Stream<String> lines = redirector.capturedLines()) {
+            assertEquals(100, lines.collect(Collectors.toList()).size());
+        }
+        OutputExpectations expectations = OutputExpectations.create().contains("line 99");
+        try(Stream<String> lines = redirector.capturedLines()) {
+            expectations.verify(lines);
+        }
+        redirector.close();
+    }
+}
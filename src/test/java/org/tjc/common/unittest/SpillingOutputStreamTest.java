@@ -0,0 +1,148 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class SpillingOutputStreamTest {
+
+    @Test
+    public void testInMemory() throws Exception {
+        writeBanner(methodName());
+        try(SpillingOutputStream out = new SpillingOutputStream(64)) {
+            out.write("hello".getBytes(StandardCharsets.US_ASCII));
+            assertFalse(out.isSpilled());
+            assertNull(out.getSpillFile());
+            assertEquals(5, out.size());
+            assertEquals("hello", out.toString());
+            assertEquals("ell", out.asCharSequence().subSequence(1, 4).toString());
+        }
+    }
+
+    @Test
+    public void testSpillAcrossSegments() throws Exception {
+        writeBanner(methodName());
+        StringBuilder expected = new StringBuilder();
+        Path spillFile;
+        try(SpillingOutputStream out = new SpillingOutputStream(100, 256)) {
+            for (int i = 0; i < 500; i++) {
+                String line = "line " + i + "\n";
+                out.write(line.getBytes(StandardCharsets.US_ASCII));
+                expected.append(line);
+            }
+            assertTrue(out.isSpilled());
+            spillFile = out.getSpillFile();
+            assertNotNull(spillFile);
+            assertEquals(expected.length(), out.size());
+
+            CharSequence view = out.asCharSequence();
+            assertEquals(expected.length(), view.length());
+            assertEquals(expected.toString(), view.toString());
+            assertEquals(expected.charAt(4000), view.charAt(4000));
+
+            try(InputStream in = out.newInputStream()) {
+                assertEquals(expected.toString(), new String(in.readAllBytes(),
+                    StandardCharsets.US_ASCII));
+            }
+            try(BufferedReader reader = (BufferedReader) out.newReader(StandardCharsets.UTF_8)) {
+                assertEquals("line 0", reader.readLine());
+                assertEquals(500, 1 + reader.lines().count());
+            }
+
+            out.reset();
+            assertEquals(0, out.size());
+            out.write('x');
+            assertEquals("x", out.toString());
+        }
+        assertFalse(Files.exists(spillFile));
+    }
+
+    @Test
+    public void testReadAfterClose() throws Exception {
+        writeBanner(methodName());
+        SpillingOutputStream out = new SpillingOutputStream(10, 16);
+        out.write("0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII));
+        CharSequence view = out.asCharSequence();
+        InputStream in = out.newInputStream();
+        assertEquals('f', view.charAt(15));
+        out.close();
+        try {
+            view.charAt(15);
+            fail("Expected an IllegalStateException.");
+        } catch (IllegalStateException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            in.read();
+            fail("Expected an IllegalStateException.");
+        } catch (IllegalStateException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            out.asCharSequence();
+            fail("Expected an IllegalStateException.");
+        } catch (IllegalStateException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Test
+    public void testSpillingCapture() throws Exception {
+        writeBanner(methodName());
+        StdOutRedirector redirector = StdOutRedirector.getInstance();
+        PrintStream original = System.out;
+        redirector.startSpillingCapture(16);
+        try {
+            for (int i = 0; i < 100; i++) {
+                System.out.println("captured line " + i);
+            }
+        } finally {
+            redirector.stopCapture();
+        }
+        assertEquals(original, System.out);
+        assertTrue(redirector.getSpillingOut().isSpilled());
+        CharSequence captured = redirector.capturedCharSequence();
+        assertTrue(captured.toString().startsWith("captured line 0"));
+        try(InputStream in = redirector.openCapturedStream()) {
+            assertEquals(redirector.toString(), new String(in.readAllBytes()));
+        }
+        redirector.close();
+        assertNull(redirector.getSpillingOut());
+    }
+}
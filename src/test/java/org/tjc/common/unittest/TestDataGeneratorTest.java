@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tjc.common.unittest.TestDataGenerator.LineFormat;
+import org.tjc.common.unittest.memfs.MemoryFileSystem;
+import static org.tjc.common.unittest.UnitTestSupport.countLines;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.readLines;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class TestDataGeneratorTest {
+    private MemoryFileSystem fs;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fs = MemoryFileSystem.create();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    @Test
+    public void testBinaryIsDeterministic() throws Exception {
+        writeBanner(methodName());
+        Path a = fs.getPath("/a.bin");
+        Path b = fs.getPath("/b.bin");
+        long size = 1_000_003;
+        assertEquals(size, TestDataGenerator.create(7).writeBinary(a, size));
+        TestDataGenerator.create(7).chunkSize(128 * 1024).parallelism(3).writeBinary(b, size);
+        byte[] bytes = Files.readAllBytes(a);
+        assertEquals(size, bytes.length);
+        assertArrayEquals(bytes, Files.readAllBytes(b));
+        TestDataGenerator.create(7).chunkSize(128 * 1024).parallelism(64)
+            .bufferMemory(256 * 1024).writeBinary(b, size);
+        assertArrayEquals(bytes, Files.readAllBytes(b));
+        TestDataGenerator.create(7).bufferMemory(1).writeBinary(b, size);
+        assertArrayEquals(bytes, Files.readAllBytes(b));
+
+        TestDataGenerator.create(8).writeBinary(b, size);
+        assertFalse(Arrays.equals(bytes, Files.readAllBytes(b)));
+    }
+
+    @Test
+    public void testTextLines() throws Exception {
+        writeBanner(methodName());
+        Path a = fs.getPath("/a.txt");
+        Path b = fs.getPath("/b.txt");
+        long bytes = TestDataGenerator.create(42).writeLines(a, 10_000, LineFormat.text(5, 80));
+        TestDataGenerator.create(42).chunkSize(1).parallelism(2)
+            .writeLines(b, 10_000, LineFormat.text(5, 80));
+        writeln("bytes: {0}", bytes);
+        assertEquals(10_000, countLines(a));
+        assertArrayEquals(Files.readAllBytes(a), Files.readAllBytes(b));
+        for (String line : readLines(a)) {
+            assertTrue(line.length() >= 5 && line.length() <= 80, line);
+            assertTrue(line.chars().allMatch(c -> c == ' ' || (c >= 'a' && c <= 'z')), line);
+        }
+    }
+
+    @Test
+    public void testGaussianLengths() throws Exception {
+        writeBanner(methodName());
+        Path file = fs.getPath("/g.txt");
+        TestDataGenerator.create(1).writeLines(file, 20_000, LineFormat.text(60.0, 10.0, 100));
+        double mean = readLines(file).stream().mapToInt(String::length).average().orElse(0);
+        writeln("mean length: {0}", mean);
+        assertEquals(60.0, mean, 1.0);
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        writeBanner(methodName());
+        Path file = fs.getPath("/r.csv");
+        TestDataGenerator.create(3).writeLines(file, 2500, LineFormat.csv(4));
+        List<String> lines = readLines(file);
+        assertEquals(2500, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String[] fields = lines.get(i).split(",");
+            assertEquals(5, fields.length);
+            assertEquals(i, Long.parseLong(fields[0]));
+            assertTrue(Integer.parseInt(fields[4]) < 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+
+/**
+ * Tests of the per thread capture mode of StdOutRedirector.
+ */
+public class ThreadCaptureTest {
+
+    private final StdOutRedirector redirector = StdOutRedirector.getInstance();
+
+    @Test
+    public void testThreadCapture() {
+        writeBanner(methodName());
+        PrintStream original = System.out;
+        redirector.startThreadCapture();
+        assertTrue(redirector.isCapturingThread());
+        System.out.println("captured");
+        System.out.print(42);
+        String captured = redirector.stopThreadCapture();
+        assertEquals("captured" + System.lineSeparator() + "42", captured);
+        assertFalse(redirector.isCapturingThread());
+        assertSame(original, System.out);
+        assertNull(redirector.stopThreadCapture());
+    }
+
+    @Test
+    public void testParallelThreadCaptures() throws Exception {
+        writeBanner(methodName());
+        PrintStream original = System.out;
+        int threads = 4;
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<String>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String name = "thread-" + t;
+                Callable<String> capture = () -> {
+                    redirector.startThreadCapture();
+                    try {
+                        for (int i = 0; i < 100; i++) {
+                            System.out.println(name);
+                            if (i % 10 == 0) {
+                                barrier.await();
+                            }
+                        }
+                    } catch (Exception e) {
+                        redirector.stopThreadCapture();
+                        throw e;
+                    }
+                    return redirector.stopThreadCapture();
+                };
+                futures.add(executor.submit(capture));
+            }
+            for (int t = 0; t < threads; t++) {
+                String captured = futures.get(t).get();
+                String[] lines = captured.split(System.lineSeparator());
+                assertEquals(100, lines.length);
+                for (String line : lines) {
+                    assertEquals("thread-" + t, line);
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertSame(original, System.out);
+    }
+
+    @Test
+    public void testChildThreadsInheritCapture() throws Exception {
+        writeBanner(methodName());
+        redirector.startThreadCapture();
+        Thread child = new Thread(() -> System.out.println("from child"));
+        child.start();
+        child.join();
+        String captured = redirector.stopThreadCapture();
+        assertEquals("from child" + System.lineSeparator(), captured);
+    }
+
+    @Test
+    public void testCaptureWhileBufferingOutput() {
+        writeBanner(methodName());
+        boolean showOutput = UnitTestSupport.getShowOutput();
+        UnitTestSupport.setShowOutput(true);
+        UnitTestSupport.startBufferedOutput();
+        try {
+            redirector.startThreadCapture();
+            UnitTestSupport.writeln("captured, not buffered");
+            assertEquals("captured, not buffered" + System.lineSeparator(),
+                redirector.stopThreadCapture());
+        } finally {
+            UnitTestSupport.discardBufferedOutput();
+            UnitTestSupport.setShowOutput(showOutput);
+        }
+    }
+}
@@ -23,10 +23,27 @@
  */
 package org.tjc.common.unittest;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.CyclicBarrier;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-public class UnitTestSupportTest {
+public class UnitTestSupportTest extends BaseUnitTest {
+
+    @BeforeEach
+    public void setUp() {
+        pushBool(UnitTestSupport.getShowOutput());
+    }
+
+    @AfterEach
+    public void tearDown() {
+        UnitTestSupport.setShowOutput(popBool());
+    }
 
     @Test
     public void smokeTest() {
@@ -34,4 +51,77 @@ public class UnitTestSupportTest {
         boolean test = thisMethodName.equals("smokeTest()");
         assertTrue(test);
     }
+
+    @Test
+    public void testSupplierNotCalledWhenOutputDisabled() {
+        UnitTestSupport.setShowOutput(false);
+        int[] calls = new int[1];
+        UnitTestSupport.writeln(() -> "called " + ++calls[0]);
+        UnitTestSupport.write(() -> "called " + ++calls[0]);
+        UnitTestSupport.writeBanner(() -> "called " + ++calls[0]);
+        assertEquals(0, calls[0]);
+
+        UnitTestSupport.setShowOutput(true);
+        UnitTestSupport.writeln(() -> "called " + ++calls[0]);
+        assertEquals(1, calls[0]);
+    }
+
+    @Test
+    public void testDisabledOutputWritesNothing() {
+        UnitTestSupport.setShowOutput(false);
+        captureStdOut();
+        UnitTestSupport.writeln("text");
+        UnitTestSupport.writeln(new char[]{'a', 'b'});
+        UnitTestSupport.writeBanner("{0}", "banner");
+        String captured = releaseStdOut();
+        assertEquals("", captured);
+    }
+
+    @Test
+    public void testRefreshShowOutput() {
+        UnitTestSupport.setShowOutput(false);
+        assertFalse(UnitTestSupport.isShowOutput());
+
+        System.setProperty(UnitTestSupport.SHOW_OUTPUT_SYS_PROPERTY, "true");
+        assertFalse(UnitTestSupport.isShowOutput());
+        assertTrue(UnitTestSupport.refreshShowOutput());
+        assertTrue(UnitTestSupport.isShowOutput());
+    }
+
+    @Test
+    public void testBufferedOutput() throws Exception {
+        UnitTestSupport.setShowOutput(true);
+        PrintStream original = System.out;
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(bytes, true));
+        try {
+            CyclicBarrier barrier = new CyclicBarrier(2);
+            Thread a = new Thread(() -> writeBufferedLines("a", barrier));
+            Thread b = new Thread(() -> writeBufferedLines("b", barrier));
+            a.start();
+            b.start();
+            a.join();
+            b.join();
+        } finally {
+            System.setOut(original);
+        }
+        String output = bytes.toString().replace(System.lineSeparator(), "");
+        assertTrue(output.equals("aaaaaaaaaabbbbbbbbbb") || output.equals("bbbbbbbbbbaaaaaaaaaa"),
+            output);
+        assertFalse(UnitTestSupport.isBufferingOutput());
+    }
+
+    private static void writeBufferedLines(String line, CyclicBarrier barrier) {
+        UnitTestSupport.startBufferedOutput();
+        try {
+            for (int i = 0; i < 10; i++) {
+                UnitTestSupport.writeln(line);
+                barrier.await();
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            UnitTestSupport.flushBufferedOutput();
+        }
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.memfs;
+
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.nio.file.spi.FileSystemProvider;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.tjc.common.unittest.FileTreeWalker;
+import org.tjc.common.unittest.PathFilter;
+import static org.tjc.common.unittest.UnitTestSupport.copy;
+import static org.tjc.common.unittest.UnitTestSupport.countLines;
+import static org.tjc.common.unittest.UnitTestSupport.fileExists;
+import static org.tjc.common.unittest.UnitTestSupport.fileToString;
+import static org.tjc.common.unittest.UnitTestSupport.filesIn;
+import static org.tjc.common.unittest.UnitTestSupport.filesInFileTree;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.readLines;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+public class MemoryFileSystemTest {
+    private MemoryFileSystem fs;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        fs = MemoryFileSystem.create();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        fs.close();
+    }
+
+    @Test
+    public void testPaths() throws Exception {
+        writeBanner(methodName());
+        Path path = fs.getPath("/a", "b", "c.txt");
+        assertEquals("/a/b/c.txt", path.toString());
+        assertEquals(3, path.getNameCount());
+        assertEquals("c.txt", path.getFileName().toString());
+        assertEquals("/a/b", path.getParent().toString());
+        assertEquals("/", path.getRoot().toString());
+        assertNull(fs.getPath("/").getFileName());
+        assertEquals("b/c.txt", path.subpath(1, 3).toString());
+        assertTrue(path.startsWith(fs.getPath("/a")));
+        assertTrue(path.endsWith(fs.getPath("b/c.txt")));
+        assertEquals("/a/c", fs.getPath("/a/./b/../c").normalize().toString());
+        assertEquals("../d", fs.getPath("/a/b").relativize(fs.getPath("/a/d")).toString());
+        assertEquals(path, fs.getPath("/a").resolve("b/c.txt"));
+        assertEquals(path, Path.of(path.toUri()));
+        assertEquals("/x/y", fs.getPath("x//y/").toAbsolutePath().toString());
+        assertTrue(fs.getPathMatcher("glob:**/*.{txt,md}").matches(path));
+        assertFalse(fs.getPathMatcher("glob:/a/*.txt").matches(path));
+    }
+
+    @Test
+    public void testFilesApi() throws Exception {
+        writeBanner(methodName());
+        Path dir = Files.createDirectories(fs.getPath("/data/in"));
+        Path file = dir.resolve("a.txt");
+        Files.writeString(file, "one\ntwo\nthree");
+        assertTrue(Files.isRegularFile(file));
+        assertTrue(Files.isDirectory(dir));
+        assertEquals(13, Files.size(file));
+        assertEquals("one\ntwo\nthree", Files.readString(file));
+        Files.writeString(file, "\nfour", StandardOpenOption.APPEND);
+        assertEquals(List.of("one", "two", "three", "four"), Files.readAllLines(file));
+
+        FileTime time = FileTime.from(Instant.parse("2020-01-01T00:00:00Z"));
+        Files.setLastModifiedTime(file, time);
+        assertEquals(time, Files.getLastModifiedTime(file));
+
+        try {
+            Files.createFile(file);
+            fail("Expected a FileAlreadyExistsException");
+        } catch (FileAlreadyExistsException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            Files.delete(dir);
+            fail("Expected a DirectoryNotEmptyException");
+        } catch (DirectoryNotEmptyException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+
+        Path copied = Files.copy(file, dir.resolve("b.txt"));
+        Path moved = Files.move(copied, fs.getPath("/data/c.txt"));
+        assertEquals(Files.readString(file), Files.readString(moved));
+        assertFalse(Files.exists(copied));
+        Files.move(moved, file, StandardCopyOption.REPLACE_EXISTING);
+
+        try(Stream<Path> walk = Files.walk(fs.getPath("/"))) {
+            assertEquals(List.of("/", "/data", "/data/in", "/data/in/a.txt"),
+                walk.map(Path::toString).sorted().collect(Collectors.toList()));
+        }
+        Files.delete(file);
+        try {
+            Files.readString(file);
+            fail("Expected a NoSuchFileException");
+        } catch (NoSuchFileException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    @Test
+    public void testUnitTestSupportHelpers() throws Exception {
+        writeBanner(methodName());
+        Path dir = Files.createDirectories(fs.getPath("/fixtures/sub"));
+        Files.writeString(fs.getPath("/fixtures/a.txt"), "a\nb\nc\n");
+        Files.writeString(dir.resolve("b.txt"), "x\r\ny");
+        assertEquals(1, filesIn(fs.getPath("/fixtures"), false).size());
+        assertEquals(2, filesIn(fs.getPath("/fixtures"), true).size());
+        assertEquals(2, filesInFileTree(fs.getPath("/fixtures")).size());
+        assertEquals(List.of("a", "b", "c"), readLines(fs.getPath("/fixtures/a.txt")));
+        assertEquals(2, countLines(dir.resolve("b.txt")));
+        assertEquals("x\r\ny", fileToString(dir.resolve("b.txt"), StandardCharsets.UTF_8));
+        assertTrue(fileExists(dir.resolve("b.txt")));
+
+        assertEquals(6, copy(fs.getPath("/fixtures/a.txt"), fs.getPath("/copy.txt")));
+        Path disk = Files.createTempFile("memfs", ".txt");
+        try {
+            copy(fs.getPath("/copy.txt"), disk);
+            assertEquals("a\nb\nc\n", Files.readString(disk));
+            copy(disk, fs.getPath("/back.txt"));
+            assertEquals("a\nb\nc\n", Files.readString(fs.getPath("/back.txt")));
+        } finally {
+            Files.delete(disk);
+        }
+
+        Set<Path> found = new HashSet<>();
+        try(Stream<Path> files = FileTreeWalker.create(fs.getPath("/"))
+            .filter(PathFilter.glob("*.txt")).stream()) {
+            files.forEach(found::add);
+        }
+        assertEquals(4, found.size());
+    }
+
+    @Test
+    public void testSparseFile() throws Exception {
+        writeBanner(methodName());
+        long size = 10L * 1024 * 1024 * 1024;
+        Path file = fs.getPath("/huge.bin");
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+            StandardOpenOption.WRITE, StandardOpenOption.READ)) {
+            channel.write(ByteBuffer.wrap(new byte[]{1, 2, 3}), size - 3);
+            assertEquals(size, channel.size());
+            ByteBuffer buffer = ByteBuffer.allocate(6);
+            channel.read(buffer, size - 6);
+            assertArrayEquals(new byte[]{0, 0, 0, 1, 2, 3}, buffer.array());
+            channel.truncate(size / 2);
+            assertEquals(size / 2, channel.size());
+        }
+        writeln("size: {0}, allocated: {1}", Files.size(file), fs.getAllocatedBytes());
+        assertTrue(fs.getAllocatedBytes() <= FileContent.BLOCK_SIZE);
+    }
+
+    @Test
+    public void testThrottle() throws Exception {
+        writeBanner(methodName());
+        Path file = Files.write(fs.getPath("/a.bin"), new byte[100_000]);
+        fs.setThroughput(1_000_000);
+        fs.setLatency(Duration.ofMillis(5));
+        long start = System.nanoTime();
+        Files.readAllBytes(file);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        writeln("elapsed: {0} ms", elapsedMillis);
+        assertTrue(elapsedMillis >= 100, "elapsed " + elapsedMillis);
+    }
+
+    @Test
+    public void testProvider() throws Exception {
+        writeBanner(methodName());
+        URI uri = URI.create("memfs://provider-test/");
+        try(MemoryFileSystem named = (MemoryFileSystem) FileSystems.newFileSystem(uri,
+            Map.of(MemoryFileSystem.LATENCY_NANOS, 1000))) {
+            assertSame(named, Path.of(uri).getFileSystem());
+            assertEquals(Duration.ofNanos(1000), named.getLatency());
+            Files.writeString(Path.of(URI.create("memfs://provider-test/x.txt")), "x");
+            assertEquals("x", Files.readString(named.getPath("/x.txt")));
+        }
+        assertTrue(FileSystemProvider.installedProviders().stream()
+            .anyMatch(provider -> provider instanceof MemoryFileSystemProvider));
+    }
+}
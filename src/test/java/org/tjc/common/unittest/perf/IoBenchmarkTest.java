@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+import org.tjc.common.unittest.memfs.MemoryFileSystem;
+import org.tjc.common.unittest.perf.IoBenchmark.Method;
+import org.tjc.common.unittest.perf.IoBenchmark.Operation;
+
+/**
+ *
+ * @author tjclancy
+ */
+public class IoBenchmarkTest {
+    private static final long FILE_SIZE = 100_000;
+    private static final int BUFFER_SIZE = 16 * 1024;
+
+    private Path dir;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("io-benchmark");
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(0, files.count(), "The scratch file wasn't deleted.");
+        }
+        Files.delete(dir);
+    }
+
+    /**
+     * Test of run method, of class IoBenchmark.
+     */
+    @Test
+    public void testRun() throws Exception {
+        writeBanner(methodName());
+        IoBenchmark benchmark = smallBenchmark(dir);
+        for (Operation operation : Operation.values()) {
+            for (Method method : Method.values()) {
+                IoBenchmarkResult result = benchmark.run(operation, method);
+                writeln("{0}", result);
+                assertEquals(operation, result.getOperation());
+                assertEquals(method, result.getMethod());
+                assertEquals(BUFFER_SIZE, result.getBufferSize());
+                if (operation == Operation.RANDOM_READ) {
+                    assertEquals(2 * 50, result.getOperationCount());
+                    assertEquals(2L * 50 * BUFFER_SIZE, result.getBytes());
+                } else {
+                    assertEquals(2 * 7, result.getOperationCount());
+                    assertEquals(2 * FILE_SIZE, result.getBytes());
+                }
+                assertTrue(result.getElapsedNanos() > 0);
+                assertTrue(result.getMegabytesPerSecond() > 0.0);
+                assertTrue(result.getLatencyPercentile(50.0)
+                    <= result.getLatencyPercentile(99.0));
+            }
+        }
+    }
+
+    /**
+     * Test of runAll method on a file system that can't map files, of class IoBenchmark.
+     */
+    @Test
+    public void testRunAllWithoutMapping() throws Exception {
+        writeBanner(methodName());
+        try (FileSystem fs = MemoryFileSystem.create()) {
+            Path memoryDir = Files.createDirectory(fs.getPath("/bench"));
+            List<IoBenchmarkResult> results = smallBenchmark(memoryDir).runAll();
+            writeln("{0}", IoBenchmark.report(results));
+            assertEquals(Operation.values().length * 2, results.size());
+            assertFalse(results.stream().anyMatch(r -> r.getMethod() == Method.MAPPED));
+            try (Stream<Path> files = Files.list(memoryDir)) {
+                assertEquals(0, files.count());
+            }
+            try {
+                smallBenchmark(memoryDir).run(Operation.SEQUENTIAL_READ, Method.MAPPED);
+                fail("Expected an UnsupportedOperationException.");
+            } catch (UnsupportedOperationException e) {
+                writeln("Caught expected exception: {0}", e);
+            }
+        }
+    }
+
+    /**
+     * Test of sweep method, of class IoBenchmark.
+     */
+    @Test
+    public void testSweep() throws Exception {
+        writeBanner(methodName());
+        List<IoBenchmarkResult> results = smallBenchmark(dir)
+            .sweep(Operation.SEQUENTIAL_READ, Method.DIRECT_CHANNEL, 4096, 8192, 65536);
+        writeln("{0}", IoBenchmark.report(results));
+        assertEquals(3, results.size());
+        assertEquals(2 * 25, results.get(0).getOperationCount());
+        assertEquals(2 * 13, results.get(1).getOperationCount());
+        assertEquals(2 * 2, results.get(2).getOperationCount());
+        for (IoBenchmarkResult result : results) {
+            assertEquals(2 * FILE_SIZE, result.getBytes());
+        }
+    }
+
+    /**
+     * Test of the argument checks, of class IoBenchmark.
+     */
+    @Test
+    public void testInvalidArguments() throws Exception {
+        writeBanner(methodName());
+        try {
+            IoBenchmark.create(dir).bufferSize(0);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            IoBenchmark.create(dir).fileSize(-1);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+        try {
+            IoBenchmark.create(dir).fileSize(1000).bufferSize(4096)
+                .run(Operation.RANDOM_READ, Method.DIRECT_CHANNEL);
+            fail("Expected an IllegalArgumentException.");
+        } catch (IllegalArgumentException e) {
+            writeln("Caught expected exception: {0}", e);
+        }
+    }
+
+    private static IoBenchmark smallBenchmark(Path directory) {
+        return IoBenchmark.create(directory)
+            .fileSize(FILE_SIZE)
+            .bufferSize(BUFFER_SIZE)
+            .randomReads(50)
+            .warmupIterations(1)
+            .measurementIterations(2)
+            .seed(42);
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+/**
+ *
+ * @author tjclancy
+ */
+public class LatencyHistogramTest {
+
+    /**
+     * Test of record method, of class LatencyHistogram.
+     */
+    @Test
+    public void testRecord() {
+        writeBanner(methodName());
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.SECONDS.toNanos(10), 3);
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        assertEquals(1000, histogram.getTotalCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(1000, histogram.getMax());
+        assertEquals(500.5, histogram.getMean(), 0.0);
+        assertEquals(1, histogram.getCountAtValue(500));
+
+        try {
+            histogram.record(-1);
+            fail("Should have throw an IllegalArgumentException...Negative values aren't allowed.");
+        } catch (IllegalArgumentException ex) {
+            // An exception is expected.
+        }
+    }
+
+    /**
+     * Test of getValueAtPercentile method, of class LatencyHistogram.
+     */
+    @Test
+    public void testGetValueAtPercentile() {
+        writeBanner(methodName());
+        LatencyHistogram histogram = new LatencyHistogram(TimeUnit.SECONDS.toNanos(10), 3);
+        for (long i = 1; i <= 1_000_000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertWithinPrecision(500_000_000L, histogram.getValueAtPercentile(50.0), 3);
+        assertWithinPrecision(990_000_000L, histogram.getValueAtPercentile(99.0), 3);
+        assertWithinPrecision(999_000_000L, histogram.getValueAtPercentile(99.9), 3);
+        assertEquals(1_000_000_000L, histogram.getValueAtPercentile(100.0));
+        assertEquals(1000L, histogram.getValueAtPercentile(0.0));
+        writeln(histogram.summary(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Test of getPercentileAtOrBelowValue method, of class LatencyHistogram.
+     */
+    @Test
+    public void testGetPercentileAtOrBelowValue() {
+        writeBanner(methodName());
+        LatencyHistogram histogram = new LatencyHistogram(100_000, 2);
+        for (long i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(50.0, histogram.getPercentileAtOrBelowValue(50), 0.0);
+        assertEquals(100.0, histogram.getPercentileAtOrBelowValue(1000), 0.0);
+        assertEquals(0.0, histogram.getPercentileAtOrBelowValue(0), 0.0);
+    }
+
+    /**
+     * Test of add method, of class LatencyHistogram.
+     */
+    @Test
+    public void testAdd() {
+        writeBanner(methodName());
+        LatencyHistogram a = new LatencyHistogram();
+        LatencyHistogram b = new LatencyHistogram();
+        a.record(10);
+        b.record(20, 3);
+        a.add(b);
+        assertEquals(4, a.getTotalCount());
+        assertEquals(10, a.getMin());
+        assertEquals(20, a.getMax());
+        assertEquals(20, a.getValueAtPercentile(50.0));
+
+        try {
+            a.add(new LatencyHistogram(1000, 1));
+            fail("Should have throw an IllegalArgumentException...Layouts differ.");
+        } catch (IllegalArgumentException ex) {
+            // An exception is expected.
+        }
+    }
+
+    /**
+     * Values above the highest trackable value are counted in the last bucket.
+     */
+    @Test
+    public void testRecordAboveHighestTrackableValue() {
+        writeBanner(methodName());
+        LatencyHistogram histogram = new LatencyHistogram(1000, 2);
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(1, histogram.getTotalCount());
+        assertEquals(Long.MAX_VALUE / 2, histogram.getMax());
+        assertEquals(Long.MAX_VALUE / 2, histogram.getValueAtPercentile(100.0));
+    }
+
+    /**
+     * Test of recordLaps method, of class LatencyHistogram.
+     */
+    @Test
+    public void testRecordLaps() {
+        writeBanner(methodName());
+        StopWatch sw = StopWatch.createStarted();
+        for (int i = 0; i < 100; i++) {
+            sw.lap();
+        }
+        sw.stop();
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.recordLaps(sw);
+        assertEquals(100, histogram.getTotalCount());
+        assertEquals(sw.getMaxLap(), histogram.getMax());
+        assertTrue(histogram.getValueAtPercentile(50.0) >= sw.getMinLap());
+    }
+
+    private static void assertWithinPrecision(long expected, long actual, int significantDigits) {
+        double tolerance = expected / Math.pow(10, significantDigits);
+        assertEquals(expected, actual, tolerance);
+    }
+
+}
@@ -0,0 +1,110 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+/**
+ *
+ * @author tjclancy
+ */
+public class MicroBenchmarkTest {
+
+    /**
+     * Test of run method, of class MicroBenchmark.
+     */
+    @Test
+    public void testRunSupplier() {
+        writeBanner(methodName());
+        int[] calls = new int[1];
+        BenchmarkResult result = MicroBenchmark.create("supplier")
+            .warmupIterations(2)
+            .measurementIterations(5)
+            .operationsPerIteration(1000)
+            .run(() -> ++calls[0]);
+        assertEquals(7 * 1000, calls[0]);
+        assertEquals(5, result.getIterations());
+        assertEquals(1000, result.getOperationsPerIteration());
+        assertTrue(result.getNanosPerOp() > 0.0);
+        assertTrue(result.getOpsPerSecond() > 0.0);
+        assertTrue(result.getNanosPerOpError() >= 0.0);
+        assertTrue(result.getMinNanosPerOp() <= result.getMaxNanosPerOp());
+        writeln(result);
+    }
+
+    /**
+     * Test of run method with an explicit blackhole, of class MicroBenchmark.
+     */
+    @Test
+    public void testRunWorkload() {
+        writeBanner(methodName());
+        BenchmarkResult result = MicroBenchmark.create("workload")
+            .warmupIterations(0)
+            .measurementIterations(3)
+            .run(blackhole -> blackhole.consume(Math.log(System.nanoTime())));
+        assertEquals(3, result.getIterations());
+        assertEquals(MicroBenchmark.DEFAULT_OPERATIONS_PER_ITERATION,
+            result.getOperationsPerIteration());
+        writeln(result);
+    }
+
+    /**
+     * Test of the statistics, of class BenchmarkResult.
+     */
+    @Test
+    public void testBenchmarkResult() {
+        writeBanner(methodName());
+        BenchmarkResult result = new BenchmarkResult("fixed", 10, new long[]{100, 200, 300});
+        assertEquals(20.0, result.getNanosPerOp(), 1e-9);
+        assertEquals(10.0, result.getNanosPerOpStdDev(), 1e-9);
+        assertEquals(9.925 * 10.0 / Math.sqrt(3), result.getNanosPerOpError(), 1e-9);
+        assertEquals(10.0, result.getMinNanosPerOp(), 1e-9);
+        assertEquals(30.0, result.getMaxNanosPerOp(), 1e-9);
+        assertEquals(5.0e7, result.getOpsPerSecond(), 1e-3);
+
+        BenchmarkResult single = new BenchmarkResult("single", 1, new long[]{5});
+        assertTrue(Double.isNaN(single.getNanosPerOpError()));
+    }
+
+    /**
+     * Invalid configurations are rejected.
+     */
+    @Test
+    public void testInvalidConfiguration() {
+        writeBanner(methodName());
+        try {
+            MicroBenchmark.create("invalid").measurementIterations(0);
+            fail("Should have throw an IllegalArgumentException...Need at least one iteration.");
+        } catch (IllegalArgumentException ex) {
+            // An exception is expected.
+        }
+    }
+
+}
@@ -0,0 +1,123 @@
+/*
+ * The MIT License
+ *
+ * Copyright 2019 tjclancy.
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package org.tjc.common.unittest.perf;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import static org.tjc.common.unittest.UnitTestSupport.methodName;
+import static org.tjc.common.unittest.UnitTestSupport.writeBanner;
+import static org.tjc.common.unittest.UnitTestSupport.writeln;
+
+/**
+ *
+ * @author tjclancy
+ */
+public class StopWatchRegistryTest {
+
+    /**
+     * Test of record method, of class StopWatchRegistry.
+     */
+    @Test
+    public void testRecord() {
+        writeBanner(methodName());
+        StopWatchRegistry registry = new StopWatchRegistry();
+        registry.record("op", 10);
+        registry.record("op", 30);
+        StopWatchRegistry.Timer timer = registry.timer("op");
+        assertSame(timer, registry.timer("op"));
+        assertEquals(2, timer.getCount());
+        assertEquals(40, timer.getTotalTime());
+        assertEquals(30, timer.getMaxTime());
+        assertEquals(20.0, timer.getMeanTime(), 0.0);
+        assertEquals(2, timer.getHistogram().getTotalCount());
+    }
+
+    /**
+     * Test of record(StopWatch) method, of class StopWatchRegistry.
+     */
+    @Test
+    public void testRecordStopWatch() {
+        writeBanner(methodName());
+        StopWatchRegistry registry = new StopWatchRegistry();
+        StopWatch sw = StopWatch.createStarted("watch");
+        sw.stop();
+        registry.record(sw);
+        assertTrue(registry.contains("watch"));
+        assertEquals(sw.elapsedTime(), registry.timer("watch").getTotalTime());
+
+        String result = registry.time("supplier", () -> "done");
+        assertEquals("done", result);
+        assertEquals(1, registry.timer("supplier").getCount());
+        writeln(registry);
+
+        registry.clear();
+        assertFalse(registry.contains("watch"));
+    }
+
+    /**
+     * Many threads recording into the same timer.
+     *
+     * @throws Exception If a recording thread is interrupted.
+     */
+    @Test
+    public void testConcurrentRecord() throws Exception {
+        writeBanner(methodName());
+        StopWatchRegistry registry = new StopWatchRegistry();
+        int threadCount = 8;
+        int recordsPerThread = 10_000;
+        CountDownLatch startSignal = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    startSignal.await();
+                } catch (InterruptedException ex) {
+                    return;
+                }
+                for (int i = 1; i <= recordsPerThread; i++) {
+                    registry.record("shared", i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        startSignal.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        StopWatchRegistry.Timer timer = registry.timer("shared");
+        long expectedTotal = threadCount * ((long) recordsPerThread * (recordsPerThread + 1) / 2);
+        assertEquals(threadCount * recordsPerThread, timer.getCount());
+        assertEquals(expectedTotal, timer.getTotalTime());
+        assertEquals(recordsPerThread, timer.getMaxTime());
+        assertEquals(threadCount * recordsPerThread, timer.getHistogram().getTotalCount());
+    }
+
+}
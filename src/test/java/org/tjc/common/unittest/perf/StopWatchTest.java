@@ -216,4 +216,77 @@ public class StopWatchTest {
         writeBanner(methodName());
     }
 
+    /**
+     * Test of lap method, of class StopWatch.
+     */
+    @Test
+    public void testLap() {
+        writeBanner(methodName());
+        StopWatch sw = StopWatch.createWithLaps("laps", 2);
+        try {
+            sw.lap();
+            fail("Should have throw an IllegalStateException...Can't lap a stopped watch.");
+        } catch (IllegalStateException ex) {
+            // An exception is expected.
+        }
+
+        sw.start();
+        long total = 0;
+        for (int i = 0; i < 10; i++) {
+            total += sw.lap();
+        }
+        sw.stop();
+        assertEquals(10, sw.getLapCount());
+        assertEquals(total, sw.getTotalLapTime());
+        assertTrue(sw.getTotalLapTime() <= sw.elapsedTime());
+        assertEquals(10, sw.getLaps().length);
+
+        sw.reset();
+        assertEquals(0, sw.getLapCount());
+    }
+
+    /**
+     * Test of split method, of class StopWatch.
+     */
+    @Test
+    public void testSplit() {
+        writeBanner(methodName());
+        StopWatch sw = StopWatch.createStarted();
+        long first = sw.split();
+        long second = sw.split();
+        assertTrue(second >= first);
+        assertEquals(0, sw.getLapCount());
+    }
+
+    /**
+     * Test of the lap statistics methods, of class StopWatch.
+     */
+    @Test
+    public void testLapStatistics() {
+        writeBanner(methodName());
+        StopWatch sw = StopWatch.create();
+        for (int i = 1; i <= 100; i++) {
+            sw.recordLap(i);
+        }
+        assertEquals(1, sw.getMinLap());
+        assertEquals(100, sw.getMaxLap());
+        assertEquals(50.5, sw.getMeanLap(), 0.0);
+        assertEquals(50, sw.getLapPercentile(50.0));
+        assertEquals(99, sw.getLapPercentile(99.0));
+        assertEquals(100, sw.getLapPercentile(100.0));
+        assertEquals(1, sw.getLapPercentile(0.0));
+
+        long[] percentiles = sw.getLapPercentiles(90.0, 99.9);
+        assertEquals(90, percentiles[0]);
+        assertEquals(100, percentiles[1]);
+
+        sw.clearLaps();
+        try {
+            sw.getMinLap();
+            fail("Should have throw an IllegalStateException...No laps recorded.");
+        } catch (IllegalStateException ex) {
+            // An exception is expected.
+        }
+    }
+
 }